@@ -4,7 +4,7 @@ import controller.MVCController;
 import java.io.InputStreamReader;
 import java.io.StringReader;
 import model.ImageModel;
-import model.ImageModelImplV3;
+import model.ImageModelImplV4;
 import view.IView;
 import view.JFrameView;
 import view.Message;
@@ -24,7 +24,7 @@ public class Main {
    */
   public static void main(String[] args) {
 
-    ImageModel model = new ImageModelImplV3();
+    ImageModel model = new ImageModelImplV4();
     Appendable output;
     Message view;
     IView viewGUI;
@@ -16,4 +16,24 @@ abstract class AbstractCommand {
    */
   abstract void execute(ImageModel model);
 
+  /**
+   * Parses the bounds of a rectangular image region given as its first column, first row, width
+   * and height. Whether the region lies within the image is checked by the model.
+   *
+   * @param x      the first column of the region.
+   * @param y      the first row of the region.
+   * @param width  the number of columns of the region.
+   * @param height the number of rows of the region.
+   * @return the region as {x, y, width, height}.
+   * @throws IllegalArgumentException if any of the bounds is not an integer.
+   */
+  static int[] parseRegion(String x, String y, String width, String height) {
+    try {
+      return new int[]{Integer.parseInt(x), Integer.parseInt(y), Integer.parseInt(width),
+          Integer.parseInt(height)};
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Region bounds must be integers", e);
+    }
+  }
+
 }
@@ -2,6 +2,7 @@ package controller;
 
 import model.ImageModel;
 import model.ImageModelV2;
+import model.ImageModelV4;
 
 /**
  * The ColorCorrectCommand class encapsulates the action of applying color correction to a specified
@@ -14,6 +15,7 @@ class ColorCorrectCommand extends AbstractCommand {
 
   private final String imageName;
   private final String saveImage;
+  private final int[] region;
 
   /**
    * Constructs a ColorCorrectCommand with the specified image names.
@@ -24,6 +26,26 @@ class ColorCorrectCommand extends AbstractCommand {
   ColorCorrectCommand(String imageName, String saveImage) {
     this.imageName = imageName;
     this.saveImage = saveImage;
+    this.region = null;
+  }
+
+  /**
+   * Constructs a ColorCorrectCommand that corrects the whole image using the histogram peaks of a
+   * rectangular region of it, such as an area known to be neutral.
+   *
+   * @param imageName The name of the input image to be color corrected.
+   * @param saveImage The name of the output image where the corrected image will be saved.
+   * @param x         The first column of the region.
+   * @param y         The first row of the region.
+   * @param width     The number of columns of the region.
+   * @param height    The number of rows of the region.
+   * @throws IllegalArgumentException if any of the region bounds is not an integer.
+   */
+  ColorCorrectCommand(String imageName, String saveImage, String x, String y, String width,
+      String height) {
+    this.imageName = imageName;
+    this.saveImage = saveImage;
+    this.region = parseRegion(x, y, width, height);
   }
 
   /**
@@ -34,14 +56,20 @@ class ColorCorrectCommand extends AbstractCommand {
    * IllegalArgumentException to indicate that the command is invalid for the given model type.
    * TypeCasting to ImageModelV2 is done explicitly as instance checking is done on interface field
    * type and by doing this we can use the existing old code and makes no need to change any older
-   * version code.
+   * version code. Correcting from a region requires an ImageModelV4.
    *
    * @param model The ImageModel instance on which the command is to be executed.
    * @throws IllegalArgumentException if the provided model does not support color correction.
    */
   @Override
   void execute(ImageModel model) {
-    if (model instanceof ImageModelV2) {
+    if (this.region != null) {
+      if (!(model instanceof ImageModelV4)) {
+        throw new IllegalArgumentException("Invalid Command");
+      }
+      ((ImageModelV4) model).applyColorCorrection(imageName, saveImage, region[0], region[1],
+          region[2], region[3]);
+    } else if (model instanceof ImageModelV2) {
       ((ImageModelV2) model).applyColorCorrection(imageName, saveImage);
     } else {
       throw new IllegalArgumentException("Invalid Command");
@@ -25,9 +25,13 @@ class CommandFactory {
 
   static {
     commandMap.put("color-correct", tokens -> {
-      validateCommandLength(tokens, 3, 5);
+      validateCommandLength(tokens, 3, 5, 8);
       if (tokens.length == 3) {
         return new ColorCorrectCommand(tokens[1], tokens[2]);
+      } else if (tokens.length == 8) {
+        validateRegionKeyword(tokens);
+        return new ColorCorrectCommand(tokens[1], tokens[2], tokens[4], tokens[5], tokens[6],
+            tokens[7]);
       } else {
         return new SplitPreviewCommand(tokens[0], tokens[1], tokens[2], tokens[3], tokens[4]);
       }
@@ -42,24 +46,65 @@ class CommandFactory {
       }
     });
     commandMap.put("histogram", tokens -> {
-      validateCommandLength(tokens, 3);
+      validateCommandLength(tokens, 3, 8);
+      if (tokens.length == 8) {
+        validateRegionKeyword(tokens);
+        return new HistogramCommand(tokens[1], tokens[2], tokens[4], tokens[5], tokens[6],
+            tokens[7]);
+      }
       return new HistogramCommand(tokens[1], tokens[2]);
     });
     commandMap.put("compress", tokens -> {
-      validateCommandLength(tokens, 4);
-      return new CompressCommand(tokens[1], tokens[2], tokens[3]);
+      validateCommandLength(tokens, 4, 6, 8);
+      return new CompressCommand(tokens[1], tokens[2], tokens[3],
+          Arrays.copyOfRange(tokens, 4, tokens.length));
+    });
+    commandMap.put("downscale", tokens -> {
+      validateCommandLength(tokens, 5, 6);
+      return new DownScaleCommand(tokens[3], tokens[4], tokens[1], tokens[2],
+          tokens.length == 6 ? tokens[5] : "bilinear");
+    });
+    commandMap.put("resize", tokens -> {
+      validateCommandLength(tokens, 5, 6);
+      return new ResizeCommand(tokens[1], tokens[2], tokens[3], tokens[4],
+          tokens.length == 6 ? tokens[5] : "lanczos");
     });
+    for (String operation : new String[]{"erode", "dilate", "open", "close"}) {
+      commandMap.put(operation, tokens -> {
+        validateCommandLength(tokens, 4, 5);
+        if (tokens.length == 4) {
+          return new MorphologyCommand(tokens[0], tokens[1], tokens[1], tokens[2], tokens[3]);
+        }
+        return new MorphologyCommand(tokens[0], tokens[1], tokens[2], tokens[3], tokens[4]);
+      });
+    }
     commandMap.put("exit", tokens -> {
       validateCommandLength(tokens, 1);
       System.exit(0);
       return null;
     });
     commandMap.put("load", tokens -> {
-      validateCommandLength(tokens, 3);
-      return new LoadCommand(tokens[1], tokens[2], getFileExtension(tokens[1]));
+      validateCommandLength(tokens, 3, 5);
+      if (tokens.length == 3) {
+        return new LoadCommand(tokens[1], tokens[2], getFileExtension(tokens[1]));
+      } else {
+        return new LoadCommand(tokens[1], tokens[2], getFileExtension(tokens[1]), tokens[3],
+            tokens[4]);
+      }
     });
     commandMap.put("save", tokens -> {
-      validateCommandLength(tokens, 3);
+      validateCommandLength(tokens, 3, 4, 5);
+      if (tokens.length == 4 && !tokens[3].equals("lossless") && !tokens[3].equals("binary")
+          || tokens.length == 5 && !tokens[3].equals("step")) {
+        throw new IllegalArgumentException("Invalid Command parameters!");
+      }
+      if (tokens.length == 5) {
+        return new SaveCommand(tokens[1], tokens[2], getFileExtension(tokens[1]), tokens[3],
+            tokens[4]);
+      }
+      if (tokens.length == 4) {
+        return new SaveCommand(tokens[1], tokens[2], getFileExtension(tokens[1]), tokens[3]);
+      }
       return new SaveCommand(tokens[1], tokens[2], getFileExtension(tokens[1]));
     });
     commandMap.put("brighten", tokens -> {
@@ -190,6 +235,19 @@ class CommandFactory {
   }
 
 
+  /**
+   * Validates that a command taking a rectangular region names it with the {@code region} keyword
+   * in front of its four bounds.
+   *
+   * @param tokens the command tokens from user input.
+   * @throws IllegalArgumentException if the keyword is missing.
+   */
+  private static void validateRegionKeyword(String[] tokens) {
+    if (!tokens[3].equals("region")) {
+      throw new IllegalArgumentException("Invalid Command parameters!");
+    }
+  }
+
   /**
    * Validates that the command input length matches one of the expected lengths. This method checks
    * if the length of the provided tokens array corresponds to any of the valid lengths specified in
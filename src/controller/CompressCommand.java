@@ -2,16 +2,25 @@ package controller;
 
 import model.ImageModel;
 import model.ImageModelV2;
+import model.ImageModelV4;
 
 /**
  * The CompressCommand class is an implementation of the command pattern that compresses a specified
- * image by a given percentage. It saves the compressed image under a new specified name.
+ * image by a given percentage. It saves the compressed image under a new specified name. Optional
+ * keyword arguments following the image names select a reduced resolution reconstruction
+ * ("scale 2", "scale 4" or "scale 8"), or block-wise compression ("block 256") with thresholds
+ * chosen per block or for the whole image ("threshold block" or "threshold global"). The
+ * reversible integer transform is selected with "transform integer".
  */
 class CompressCommand extends AbstractCommand {
 
   private final int percentage;
   private final String imageName;
   private final String saveImage;
+  private int scale = 1;
+  private int blockSize = 0;
+  private Boolean globalThreshold = null;
+  private boolean integer = false;
 
   /**
    * Constructs a CompressCommand with the specified compression percentage, image name, and save
@@ -21,10 +30,13 @@ class CompressCommand extends AbstractCommand {
    *                   and 100.
    * @param imageName  The name of the image to compress.
    * @param saveImage  The name to assign to the compressed image.
+   * @param options    Optional keyword and value pairs, such as "scale" followed by 2, 4 or 8,
+   *                   "block" followed by the block size, "threshold" followed by "block" or
+   *                   "global", or "transform" followed by "haar" or "integer".
    * @throws IllegalArgumentException if the percentage is not a valid integer or not in the valid
-   *                                  range (0-100).
+   *                                  range (0-100), or if an option is not valid.
    */
-  CompressCommand(String percentage, String imageName, String saveImage) {
+  CompressCommand(String percentage, String imageName, String saveImage, String... options) {
     try {
       this.percentage = Integer.parseInt(percentage);
       if (this.percentage > 100 || this.percentage < 0) {
@@ -35,21 +47,100 @@ class CompressCommand extends AbstractCommand {
     }
     this.imageName = imageName;
     this.saveImage = saveImage;
+    if (options.length % 2 != 0) {
+      throw new IllegalArgumentException("Invalid Command parameters!");
+    }
+    for (int i = 0; i < options.length; i += 2) {
+      this.parseOption(options[i], options[i + 1]);
+    }
+    if (this.blockSize != 0 && this.scale != 1) {
+      throw new IllegalArgumentException("Scale cannot be combined with block compression");
+    }
+    if (this.blockSize != 0 && this.integer) {
+      throw new IllegalArgumentException(
+          "Integer transform cannot be combined with block compression");
+    }
+    if (this.globalThreshold != null && this.blockSize == 0) {
+      throw new IllegalArgumentException("Threshold can only be chosen for block compression");
+    }
+  }
+
+  /**
+   * Parses one keyword and value pair of the optional command arguments.
+   *
+   * @param keyword the name of the option.
+   * @param value   the value of the option.
+   * @throws IllegalArgumentException if the option or its value is not valid.
+   */
+  private void parseOption(String keyword, String value) {
+    if (keyword.equals("scale")) {
+      try {
+        this.scale = Integer.parseInt(value);
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Scale must be an integer");
+      }
+      if (this.scale != 2 && this.scale != 4 && this.scale != 8) {
+        throw new IllegalArgumentException("Scale must be 2, 4 or 8");
+      }
+    } else if (keyword.equals("block")) {
+      try {
+        this.blockSize = Integer.parseInt(value);
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Block size must be an integer");
+      }
+      if (this.blockSize < 8 || this.blockSize > 4096 || Integer.bitCount(this.blockSize) != 1) {
+        throw new IllegalArgumentException(
+            "Block size must be a power of two between 8 and 4096");
+      }
+    } else if (keyword.equals("threshold") && value.equals("block")) {
+      this.globalThreshold = false;
+    } else if (keyword.equals("threshold") && value.equals("global")) {
+      this.globalThreshold = true;
+    } else if (keyword.equals("transform") && value.equals("haar")) {
+      this.integer = false;
+    } else if (keyword.equals("transform") && value.equals("integer")) {
+      this.integer = true;
+    } else {
+      throw new IllegalArgumentException("Invalid Command");
+    }
   }
 
   /**
    * Executes the command to compress the specified image by the given percentage. This method
-   * delegates the compression operation to the `applyCompress` method of `ImageModelV2`.
-   * TypeCasting to ImageModelV2 is done explicitly as instance checking is done on interface field
-   * type and by doing this we can use the existing old code and makes no need to change any older
-   * version code.
+   * delegates the compression operation to the `applyCompress` method of `ImageModelV2`, or of
+   * `ImageModelV4` when a reduced resolution, block-wise compression or the integer transform is
+   * requested. TypeCasting to ImageModelV2 is done
+   * explicitly as instance checking is done on interface field type and by doing this we can use
+   * the existing old code and makes no need to change any older version code.
    *
    * @param model The ImageModel instance used to perform the compression operation.
-   * @throws IllegalArgumentException if the provided model is not an instance of ImageModelV2.
+   * @throws IllegalArgumentException if the provided model does not support the requested
+   *                                  options.
    */
   @Override
   void execute(ImageModel model) {
-    if (model instanceof ImageModelV2) {
+    if (this.blockSize != 0) {
+      if (model instanceof ImageModelV4) {
+        ((ImageModelV4) model).applyBlockCompress(this.percentage, this.imageName, this.saveImage,
+            this.blockSize, Boolean.TRUE.equals(this.globalThreshold));
+      } else {
+        throw new IllegalArgumentException("Invalid Command");
+      }
+    } else if (this.integer) {
+      if (model instanceof ImageModelV4) {
+        ((ImageModelV4) model).applyIntegerCompress(this.percentage, this.imageName,
+            this.saveImage, this.scale);
+      } else {
+        throw new IllegalArgumentException("Invalid Command");
+      }
+    } else if (this.scale != 1) {
+      if (model instanceof ImageModelV4) {
+        ((ImageModelV4) model).applyCompress(this.percentage, this.imageName, this.saveImage,
+            this.scale);
+      } else {
+        throw new IllegalArgumentException("Invalid Command");
+      }
+    } else if (model instanceof ImageModelV2) {
       ((ImageModelV2) model).applyCompress(this.percentage, this.imageName, this.saveImage);
     } else {
       throw new IllegalArgumentException("Invalid Command");
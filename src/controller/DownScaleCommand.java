@@ -2,13 +2,16 @@ package controller;
 
 import model.ImageModel;
 import model.ImageModelV3;
+import model.ImageModelV4;
 
 /**
  * The DownScaleCommand class encapsulates the action of applying downscaling to a specified image.
  * It extends the AbstractCommand class, following the Command design pattern, which allows for
  * encapsulating requests as objects. This command is responsible for invoking the downscaling
  * functionality provided by the ImageModelV3 class. It ensures that the correct model version is
- * used and handles any discrepancies by throwing appropriate exceptions.
+ * used and handles any discrepancies by throwing appropriate exceptions. Besides bilinear sampling
+ * of the image, the command can ask for area averaging or for bilinear sampling of the image
+ * pyramid, which are used when the model supports them.
  */
 class DownScaleCommand extends AbstractCommand {
 
@@ -16,6 +19,7 @@ class DownScaleCommand extends AbstractCommand {
   private final String saveImage;
   private final int height;
   private final int width;
+  private final String mode;
 
   /**
    * Constructs a DownScaleCommand with the specified image names and scaling dimensions.
@@ -27,6 +31,29 @@ class DownScaleCommand extends AbstractCommand {
    * @throws IllegalArgumentException if the height or width is not a valid integer.
    */
   DownScaleCommand(String imageName, String saveImage, String height, String width) {
+    this(imageName, saveImage, height, width, "bilinear");
+  }
+
+  /**
+   * Constructs a DownScaleCommand with the given downscaling mode.
+   *
+   * @param imageName The name of the input image to be downscaled.
+   * @param saveImage The name of the output image where the downscaled image will be saved.
+   * @param height    The desired height for the downscaled image.
+   * @param width     The desired width for the downscaled image.
+   * @param mode      "bilinear" to sample the image, "area" to average the source pixels under
+   *                  every output pixel, or "pyramid" to sample the smallest cached reduction of
+   *                  the image that is large enough. The last two need a model that supports them
+   *                  and fall back to bilinear sampling otherwise.
+   * @throws IllegalArgumentException if the height or width is not a valid integer or the mode is
+   *                                  not supported.
+   */
+  DownScaleCommand(String imageName, String saveImage, String height, String width,
+      String mode) {
+    if (!mode.equals("bilinear") && !mode.equals("area") && !mode.equals("pyramid")) {
+      throw new IllegalArgumentException("Downscale mode must be bilinear, area or pyramid");
+    }
+    this.mode = mode;
     this.imageName = imageName;
     this.saveImage = saveImage;
     try {
@@ -42,14 +69,19 @@ class DownScaleCommand extends AbstractCommand {
    * model is an instance of ImageModelV3, which contains the downscaling functionality. If so, it
    * invokes the downscaling method with the specified image names and scaling dimensions. If the
    * model is not an instance of ImageModelV3, it throws an IllegalArgumentException to indicate
-   * that the command is invalid for the given model type.
+   * that the command is invalid for the given model type. Area averaging and pyramid sampling are
+   * applied through an ImageModelV4.
    *
    * @param model The ImageModel instance on which the command is to be executed.
    * @throws IllegalArgumentException if the provided model does not support downscaling.
    */
   @Override
   void execute(ImageModel model) {
-    if (model instanceof ImageModelV3) {
+    if (this.mode.equals("area") && model instanceof ImageModelV4) {
+      ((ImageModelV4) model).applyAreaDownScaling(imageName, saveImage, height, width);
+    } else if (this.mode.equals("pyramid") && model instanceof ImageModelV4) {
+      ((ImageModelV4) model).applyPyramidDownScaling(imageName, saveImage, height, width);
+    } else if (model instanceof ImageModelV3) {
       ((ImageModelV3) model).applyDownScaling(imageName, saveImage, height, width);
     } else {
       throw new IllegalArgumentException("Invalid Command");
@@ -2,8 +2,13 @@ package controller;
 
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import javax.swing.SwingUtilities;
 import model.ImageModel;
 import model.ImageModelV2;
+import model.ImageModelV4;
+import utils.HistogramEstimate;
 import view.IView;
 
 /**
@@ -14,8 +19,13 @@ import view.IView;
  */
 public class FeaturesImpl implements Features {
 
+  private static final int HISTOGRAM_SAMPLES = 1 << 20;
+
   private final ImageModel model;
   private final IView view;
+  private final HistogramRenderer histogramRenderer;
+  private int histogramRequest;
+  private SplitPreviewRenderer splitPreview;
 
   /**
    * Constructs object with the specified model and view.
@@ -26,6 +36,7 @@ public class FeaturesImpl implements Features {
   public FeaturesImpl(ImageModel model, IView view) {
     this.model = model;
     this.view = view;
+    this.histogramRenderer = new HistogramRenderer();
   }
 
   /**
@@ -39,25 +50,6 @@ public class FeaturesImpl implements Features {
     command.execute(this.model);
   }
 
-  /**
-   * Converts a 3D RGB array to a BufferedImage.
-   *
-   * @param rgbArray A 3D array representing RGB values of an image.
-   * @return A BufferedImage representation of the RGB array.
-   */
-  private BufferedImage convertRgbArrayToBufferedImage(int[][][] rgbArray) {
-    int height = rgbArray.length;
-    int width = rgbArray[0].length;
-    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-    for (int y = 0; y < height; y++) {
-      for (int x = 0; x < width; x++) {
-        int rgbPixel = rgbArray[y][x][0] << 16 | rgbArray[y][x][1] << 8 | rgbArray[y][x][2];
-        image.setRGB(x, y, rgbPixel);
-      }
-    }
-    return image;
-  }
-
   /**
    * Converts the saved image into a BufferedImage using the model.
    *
@@ -66,19 +58,36 @@ public class FeaturesImpl implements Features {
    */
   private BufferedImage pixelToBufferImage(String imageName) {
     int[][][] rgb = model.saveImage(imageName);
-    return convertRgbArrayToBufferedImage(rgb);
+    return RasterConversion.toPackedImage(rgb);
   }
 
   /**
-   * Converts the image into a histogram and returns it as a BufferedImage.
+   * Converts the image into a histogram and returns it as a BufferedImage. For models that cache
+   * the histogram with each image it is drawn straight into the renderer's image, older models
+   * store it as a separate image. The histogram of a huge image whose histogram is not cached yet
+   * is estimated from a sample of its pixels; the exact histogram is then computed in the
+   * background and replaces the estimate, unless another histogram was requested meanwhile.
    *
    * @param imageName The name of the image for which the histogram is to be generated.
    * @return A BufferedImage representing the image's histogram.
    */
   private BufferedImage pixelToHistogram(String imageName) {
+    if (model instanceof ImageModelV4) {
+      ImageModelV4 modelV4 = (ImageModelV4) model;
+      HistogramEstimate estimate = modelV4.estimateHistogram(imageName, HISTOGRAM_SAMPLES);
+      int request = ++this.histogramRequest;
+      if (!estimate.isExact()) {
+        modelV4.computeHistogram(imageName).thenAccept(exact -> SwingUtilities.invokeLater(() -> {
+          if (request == this.histogramRequest) {
+            this.view.displayHistogram(imageName, this.histogramRenderer.render(exact));
+          }
+        }));
+      }
+      return this.histogramRenderer.render(estimate.getFrequencies());
+    }
     ((ImageModelV2) model).applyHistogram(imageName, "Histogram" + imageName);
     int[][][] histogramRGB = model.saveImage("Histogram" + imageName);
-    return convertRgbArrayToBufferedImage(histogramRGB);
+    return RasterConversion.toPackedImage(histogramRGB);
   }
 
   /**
@@ -87,12 +96,46 @@ public class FeaturesImpl implements Features {
    * @param imageName The name of the image to be displayed.
    */
   private void displayImageGUI(String imageName) {
+    this.splitPreview = null;
     BufferedImage imageBuffer = this.pixelToBufferImage(imageName);
     this.view.displayImage(imageName, imageBuffer);
     BufferedImage imageHistogram = this.pixelToHistogram(imageName);
     this.view.displayHistogram(imageName, imageHistogram);
   }
 
+  /**
+   * Loads the image in the given file under the given name and displays it. Wavelet images are
+   * decoded progressively on a background thread, showing a coarse version of the image as soon as
+   * its first levels are read and refining it as the rest of the file arrives.
+   *
+   * @param file      the file holding the image.
+   * @param imageName the name to load the image under.
+   */
+  private void loadFile(File file, String imageName) {
+    if (!file.getName().toLowerCase().endsWith(".hwc")) {
+      String[] commandTokens = {"load", file.getAbsolutePath(), imageName};
+      this.applyCommand(commandTokens);
+      this.displayImageGUI(imageName);
+      return;
+    }
+    Thread loader = new Thread(() -> {
+      try {
+        int[][][] rgb = WaveletImageFormat.readProgressive(file, preview -> {
+          BufferedImage previewBuffer = RasterConversion.toPackedImage(preview);
+          SwingUtilities.invokeLater(() -> this.view.displayImage(imageName, previewBuffer));
+        });
+        SwingUtilities.invokeLater(() -> {
+          this.model.loadImage(imageName, rgb);
+          this.displayImageGUI(imageName);
+        });
+      } catch (IOException | IllegalArgumentException e) {
+        SwingUtilities.invokeLater(() -> this.view.showError(e.getMessage()));
+      }
+    });
+    loader.setDaemon(true);
+    loader.start();
+  }
+
   /**
    * Checks if the specified image is valid (i.e., loaded).
    *
@@ -119,9 +162,7 @@ public class FeaturesImpl implements Features {
     if (file.exists()) {
       String pathName = file.getName();
       String imageName = pathName.substring(0, pathName.lastIndexOf("."));
-      String[] commandTokens = {"load", file.getAbsolutePath(), imageName};
-      this.applyCommand(commandTokens);
-      this.displayImageGUI(imageName);
+      this.loadFile(file, imageName);
     }
   }
 
@@ -136,9 +177,7 @@ public class FeaturesImpl implements Features {
     }
     String pathName = path.getName();
     String imageName = pathName.substring(0, pathName.lastIndexOf("."));
-    String[] commandTokens = {"load", path.getAbsolutePath(), imageName};
-    this.applyCommand(commandTokens);
-    this.displayImageGUI(imageName);
+    this.loadFile(path, imageName);
   }
 
   /**
@@ -159,7 +198,7 @@ public class FeaturesImpl implements Features {
         this.applyCommand(commandTokens);
       }
     } catch (Exception e) {
-      this.view.showError(e.getMessage() + "\n Extension should be either PNG/JPG/JPEG/PPM");
+      this.view.showError(e.getMessage() + "\n Extension should be either PNG/JPG/JPEG/PPM/HWC");
     }
   }
 
@@ -278,7 +317,9 @@ public class FeaturesImpl implements Features {
 
   /**
    * Previews the image after applying a filter (e.g., blur, sharpen) with a split preview at a
-   * specified intensity and optional parameters.
+   * specified intensity and optional parameters. Models that can apply an operation without saving
+   * it are asked for the operated image once per image, filter and parameters; moving the split
+   * afterwards only recomposes the columns the split passed over.
    *
    * @param filterType The type of filter (e.g., blur, sharpen).
    * @param imageName  The name of the image to apply the filter to.
@@ -290,6 +331,12 @@ public class FeaturesImpl implements Features {
       String... params) {
     try {
       String saveImageName = imageName + filterType + "_splitPreview";
+      if (this.model instanceof ImageModelV4) {
+        BufferedImage splitImage = this.renderSplitPreview((ImageModelV4) this.model, filterType,
+            imageName, intensity, params);
+        this.view.displayInPreview(saveImageName, splitImage);
+        return;
+      }
       String[] commandTokens = null;
       if (params == null) {
         commandTokens = new String[]{filterType, imageName, saveImageName, "split", intensity};
@@ -305,6 +352,41 @@ public class FeaturesImpl implements Features {
     }
   }
 
+  /**
+   * Renders a split preview from the cached renderer, building the renderer first when the image,
+   * filter or parameters differ from those of the previous preview.
+   *
+   * @param modelV4    The model to apply the filter with.
+   * @param filterType The type of filter.
+   * @param imageName  The name of the image to apply the filter to.
+   * @param intensity  The split percentage.
+   * @param params     Optional additional parameters for the filter, or null.
+   * @return the preview image.
+   * @throws IllegalArgumentException if the percentage or the parameters are invalid.
+   */
+  private BufferedImage renderSplitPreview(ImageModelV4 modelV4, String filterType,
+      String imageName, String intensity, String[] params) {
+    double percentage;
+    int[] values = new int[params == null ? 0 : params.length];
+    try {
+      percentage = Double.parseDouble(intensity);
+      for (int i = 0; i < values.length; i++) {
+        values[i] = Integer.parseInt(params[i]);
+      }
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Parameters must be integers", e);
+    }
+    if (percentage < 0.0 || percentage > 100.0) {
+      throw new IllegalArgumentException("Percentage must be between 0 and 100");
+    }
+    String key = imageName + " " + filterType + " " + Arrays.toString(values);
+    if (this.splitPreview == null || !this.splitPreview.isFor(key)) {
+      int[][][] operated = modelV4.previewOperation(filterType, imageName, values);
+      this.splitPreview = new SplitPreviewRenderer(key, modelV4.saveImage(imageName), operated);
+    }
+    return this.splitPreview.render(percentage);
+  }
+
   /**
    * Compresses the image with the specified name by the given percentage and either displays it in
    * the GUI or as a preview.
@@ -331,7 +413,8 @@ public class FeaturesImpl implements Features {
 
   /**
    * Downscales the image to the specified height and width and either displays it in the GUI or as
-   * a preview.
+   * a preview. Models that support it downscale by area averaging, which keeps large reductions
+   * free of aliasing.
    *
    * @param imageName The name of the image to downscale.
    * @param height    The new height for the image.
@@ -344,7 +427,8 @@ public class FeaturesImpl implements Features {
     try {
       if (this.checkImage(imageName)) {
         String saveImageName = imageName + height + width;
-        AbstractCommand downscale = new DownScaleCommand(imageName, saveImageName, height, width);
+        AbstractCommand downscale = new DownScaleCommand(imageName, saveImageName, height, width,
+            "area");
         downscale.execute(this.model);
         BufferedImage downScaledImage = this.pixelToBufferImage(saveImageName);
         if (flag) {
@@ -2,16 +2,18 @@ package controller;
 
 import model.ImageModel;
 import model.ImageModelV2;
+import model.ImageModelV4;
 
 /**
  * HistogramCommand is an implementation of the command pattern that encapsulates the action of
  * applying a histogram operation to an image. It allows for generating and saving the histogram of
- * a specified image.
+ * a specified image, or of a rectangular region of it.
  */
 class HistogramCommand extends AbstractCommand {
 
   private final String imageName;
   private final String saveImage;
+  private final int[] region;
 
   /**
    * Constructs a HistogramCommand with the specified image name and save image name.
@@ -22,6 +24,25 @@ class HistogramCommand extends AbstractCommand {
   HistogramCommand(String imageName, String saveImage) {
     this.imageName = imageName;
     this.saveImage = saveImage;
+    this.region = null;
+  }
+
+  /**
+   * Constructs a HistogramCommand that plots the histogram of a rectangular region of the image.
+   *
+   * @param imageName The name of the image to apply the histogram operation.
+   * @param saveImage The name of the image where the histogram will be saved.
+   * @param x         The first column of the region.
+   * @param y         The first row of the region.
+   * @param width     The number of columns of the region.
+   * @param height    The number of rows of the region.
+   * @throws IllegalArgumentException if any of the region bounds is not an integer.
+   */
+  HistogramCommand(String imageName, String saveImage, String x, String y, String width,
+      String height) {
+    this.imageName = imageName;
+    this.saveImage = saveImage;
+    this.region = parseRegion(x, y, width, height);
   }
 
   /**
@@ -30,14 +51,20 @@ class HistogramCommand extends AbstractCommand {
    * histogram operation using the `applyHistogram` method. Otherwise, it throws an
    * IllegalArgumentException. TypeCasting to ImageModelV2 is done explicitly as instance checking
    * is done on interface field type and by doing this we can use the existing old code and makes no
-   * need to change any older version code.
+   * need to change any older version code. Histograms of a region require an `ImageModelV4`.
    *
    * @param model The ImageModel instance used to perform the histogram operation.
-   * @throws IllegalArgumentException If the model is not an instance of ImageModelV2.
+   * @throws IllegalArgumentException If the model does not support the operation.
    */
   @Override
   void execute(ImageModel model) {
-    if (model instanceof ImageModelV2) {
+    if (this.region != null) {
+      if (!(model instanceof ImageModelV4)) {
+        throw new IllegalArgumentException("Invalid Command");
+      }
+      ((ImageModelV4) model).applyHistogram(this.imageName, this.saveImage, this.region[0],
+          this.region[1], this.region[2], this.region[3]);
+    } else if (model instanceof ImageModelV2) {
       ((ImageModelV2) model).applyHistogram(this.imageName, this.saveImage);
     } else {
       throw new IllegalArgumentException("Invalid Command");
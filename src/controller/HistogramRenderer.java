@@ -0,0 +1,90 @@
+package controller;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+/**
+ * The HistogramRenderer class draws the histogram plot shown next to the image in the GUI straight
+ * into the raster of a reusable BufferedImage. The grid background is rendered once and copied into
+ * the raster before every plot, and the lines of the three channels are written as packed pixels,
+ * so a redraw neither allocates nor converts a pixel matrix. The plot is identical to the one of
+ * the histogram command.
+ */
+class HistogramRenderer {
+
+  private static final int SIZE = 256;
+  private static final int[] BACKGROUND = renderBackground();
+  private static final int[] COLORS = {0xFF0000, 0x00FF00, 0x0000FF};
+
+  private final BufferedImage image;
+  private final int[] pixels;
+
+  /**
+   * Constructs a renderer with its own image to draw into.
+   */
+  HistogramRenderer() {
+    this.image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_RGB);
+    this.pixels = ((DataBufferInt) this.image.getRaster().getDataBuffer()).getData();
+  }
+
+  /**
+   * Renders the grid background of the plot as packed RGB pixels.
+   *
+   * @return the pixels of the background, row by row.
+   */
+  private static int[] renderBackground() {
+    int[] background = new int[SIZE * SIZE];
+    for (int i = 0; i < SIZE; i++) {
+      for (int j = 0; j < SIZE; j++) {
+        background[i * SIZE + j] = i % 15 == 0 || j % 15 == 0 ? 0xAAAAAA : 0xFFFFFF;
+      }
+    }
+    return background;
+  }
+
+  /**
+   * Draws a vertical line in the given column between two rows, both included.
+   *
+   * @param start the row the line starts at.
+   * @param end   the row the line ends at.
+   * @param index the column of the line.
+   * @param color the packed RGB color of the line.
+   */
+  private void plotter(int start, int end, int index, int color) {
+    int from = Math.min(start, end);
+    int to = Math.max(start, end);
+    for (int i = from; i <= to; i++) {
+      this.pixels[i * SIZE + index] = color;
+    }
+  }
+
+  /**
+   * Draws the histogram of the given channel frequencies. The returned image is reused by the next
+   * call, so it should be displayed before this renderer draws again.
+   *
+   * @param frequencies the frequency of every intensity, indexed by channel and then intensity.
+   * @return the image holding the plot.
+   */
+  BufferedImage render(int[][] frequencies) {
+    int maxRGB = 0;
+    for (int[] channel : frequencies) {
+      for (int frequency : channel) {
+        maxRGB = Math.max(maxRGB, frequency);
+      }
+    }
+    int[][] heights = new int[3][SIZE];
+    for (int k = 0; k < 3; k++) {
+      for (int i = 0; i < SIZE; i++) {
+        heights[k][i] = 255 - (int) Math.round(frequencies[k][i] * 255.0 / maxRGB);
+      }
+    }
+
+    System.arraycopy(BACKGROUND, 0, this.pixels, 0, BACKGROUND.length);
+    for (int j = 1; j < SIZE; j++) {
+      for (int k = 0; k < 3; k++) {
+        this.plotter(heights[k][j - 1], heights[k][j], j, COLORS[k]);
+      }
+    }
+    return this.image;
+  }
+}
@@ -4,6 +4,8 @@ import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Scanner;
 import model.ImageModel;
 import view.Message;
@@ -21,13 +23,19 @@ import view.Message;
  * executing commands in both interactive and script modes. - Validating and reading commands from
  * an input file. - Using a command factory to dynamically create and execute appropriate commands.
  * This design promotes flexibility, enabling users to work with individual commands or scripts,
- * while keeping the command execution flow modular and easy to extend.
+ * while keeping the command execution flow modular and easy to extend. Saved images are written in
+ * the background by a {@link SaveQueue}; the controller waits for them before a file being written
+ * is loaded, before exiting and at the end of every script, and reports a failed write with the
+ * line number of its save command. The images a script loads are decoded in parallel ahead of time,
+ * a bounded window at a time, by a {@link LoadPrefetcher} and handed to the model when the script
+ * reaches their load lines.
  */
 public class ImageController implements ControllerInterface {
 
   private final ImageModel imageModel;
   private final Message view;
   private final Readable in;
+  private final SaveQueue saves;
 
   /**
    * Constructor to initialize the controller with model, view, and input source.
@@ -40,6 +48,7 @@ public class ImageController implements ControllerInterface {
     this.imageModel = model;
     this.view = view;
     this.in = in;
+    this.saves = new SaveQueue();
   }
 
   /**
@@ -69,33 +78,49 @@ public class ImageController implements ControllerInterface {
 
   /**
    * Reads and executes commands line by line from a provided BufferedReader. Commands in the file
-   * can be commented out by starting with "#" and are skipped.
+   * can be commented out by starting with "#" and are skipped. The whole script is read first so
+   * that the images it loads can be decoded ahead of time by a {@link LoadPrefetcher}. All images
+   * saved by the script are written before this returns.
    *
    * @param reader BufferedReader from which to read commands.
    * @throws IllegalArgumentException If an error occurs during file reading.
    */
   private void getCommandsFromScript(BufferedReader reader) {
+    List<String> lines = new ArrayList<>();
     try {
       String line;
       while ((line = reader.readLine()) != null) {
-        line = line.trim();
-        if (!line.isEmpty() && (line.charAt(0) != '#')) {
-          this.executeCommand(line);
-        }
+        lines.add(line);
       }
     } catch (IOException e) {
       throw new IllegalArgumentException("File not found!");
     }
+
+    LoadPrefetcher prefetcher = new LoadPrefetcher(lines, this.saves);
+    try {
+      for (int i = 0; i < lines.size(); i++) {
+        String line = lines.get(i).trim();
+        if (!line.isEmpty() && (line.charAt(0) != '#')) {
+          this.executeCommand(line, i + 1, prefetcher);
+        }
+      }
+    } finally {
+      prefetcher.cancel();
+      this.reportSaveErrors(true);
+    }
   }
 
   /**
    * Parses and executes a single command. Uses a factory to create the appropriate command and
-   * executes it on the image model.
+   * executes it on the image model. Save commands fetch the image and check the destination
+   * straight away, and leave encoding and writing the file to the save queue. Load commands whose
+   * image was prefetched hand the decoded image to the model.
    *
-   * @param command The command string to be executed.
-   * @throws IOException If an error occurs while executing the command.
+   * @param command    The command string to be executed.
+   * @param lineNumber The line number of the command, used to report a failed save.
+   * @param prefetcher The images decoded ahead of time for the current script, or null.
    */
-  private void executeCommand(String command) throws IOException {
+  private void executeCommand(String command, int lineNumber, LoadPrefetcher prefetcher) {
     command = command.replaceAll("\\s+", " ").trim();
     String[] tokens = command.split(" ");
     if (tokens.length == 0) {
@@ -104,33 +129,61 @@ public class ImageController implements ControllerInterface {
     tokens[0] = tokens[0].toLowerCase();
     AbstractCommand cmd;
     try {
+      if (tokens[0].equals("exit")) {
+        this.reportSaveErrors(true);
+      } else if (tokens[0].equals("load") && tokens.length > 1) {
+        this.saves.await(tokens[1]);
+      }
       cmd = CommandFactory.createCommand(tokens);
-      cmd.execute(imageModel);
+      if (cmd instanceof SaveCommand) {
+        SaveCommand save = (SaveCommand) cmd;
+        this.saves.submit(lineNumber, save.getPath(), save.prepare(imageModel));
+      } else if (cmd instanceof LoadCommand && prefetcher != null
+          && prefetcher.has(lineNumber)) {
+        imageModel.loadImage(((LoadCommand) cmd).getName(), prefetcher.take(lineNumber));
+      } else {
+        cmd.execute(imageModel);
+      }
       this.view.printSuccess(tokens[0]);
     } catch (Exception e) {
       this.view.printError(e.getMessage());
     }
+    this.reportSaveErrors(false);
+  }
+
+  /**
+   * Prints the errors of the background writes that have failed.
+   *
+   * @param wait true to wait for all pending writes first.
+   */
+  private void reportSaveErrors(boolean wait) {
+    for (String error : this.saves.drainErrors(wait)) {
+      this.view.printError(error);
+    }
   }
 
   /**
    * Starts the controller to continuously read commands from the input source until terminated.
    * Recognizes "run filename.txt" commands to execute a batch of commands from a file. Otherwise,
-   * processes individual commands.
+   * processes individual commands. All saved images are written before this returns.
    */
   @Override
   public void start() {
     try (Scanner scanner = new Scanner(this.in)) {
       this.view.printWelcomeMessage();
+      int lineNumber = 0;
       while (scanner.hasNextLine()) {
+        lineNumber++;
         String command = scanner.nextLine().trim();
         if (command.startsWith("run")) {
           this.getCommandsFromScript(this.readFileFromCommand(command));
         } else {
-          this.executeCommand(command);
+          this.executeCommand(command, lineNumber, null);
         }
       }
     } catch (Exception e) {
       this.view.printError(e.getMessage());
     }
+    this.reportSaveErrors(true);
   }
 }
@@ -3,101 +3,65 @@ package controller;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
-import java.util.Scanner;
 import javax.imageio.ImageIO;
 import model.ImageModel;
 
 /**
  * The LoadCommand class is a concrete implementation of the AbstractCommand class, responsible for
- * loading an image from a specified file path into the ImageModel.
+ * loading an image from a specified file path into the ImageModel. PPM and PGM images, plain or
+ * binary, are read by {@link PpmImageFormat}, and other images are decoded by ImageIO and copied
+ * out of their raster by {@link RasterConversion}. Wavelet (HWC) images can also be loaded at a
+ * reduced resolution, in which case only the coarse part of the file is decoded.
  */
 class LoadCommand extends AbstractCommand {
 
   private final String path;
   private final String name;
   private final String extension;
+  private final int scale;
 
   /**
    * Constructs a LoadCommand with the specified parameters.
    *
    * @param path      the file path of the image to be loaded.
    * @param name      the name to assign to the loaded image in the model.
-   * @param extension the file extension of the image (e.g., "png", "jpeg", "ppm").
+   * @param extension the file extension of the image (e.g., "png", "jpeg", "ppm", "pgm", "hwc").
    */
   LoadCommand(String path, String name, String extension) {
     this.path = path;
     this.name = name;
     this.extension = extension;
+    this.scale = 1;
   }
 
   /**
-   * Loads a PPM (Portable Pixel Map) image file into a 3D RGB matrix. This method parses the PPM
-   * file, reading its width, height, and pixel data, and returns a 3D array representing the RGB
-   * values of each pixel.
+   * Constructs a LoadCommand that loads a wavelet image at a reduced resolution.
    *
-   * @param file The PPM file to be loaded.
-   * @return A 3D array representing the image's RGB pixel data.
-   * @throws IOException              If there is an issue reading the file.
-   * @throws IllegalArgumentException If the file format is not valid (i.e., it doesn't start with
-   *                                  "P3").
+   * @param path      the file path of the image to be loaded.
+   * @param name      the name to assign to the loaded image in the model.
+   * @param extension the file extension of the image, which must be "hwc".
+   * @param keyword   the option keyword, which must be "scale".
+   * @param scale     the factor by which the loaded image is smaller, one of 2, 4 or 8.
+   * @throws IllegalArgumentException if the option is not valid for the given file.
    */
-  private static int[][][] loadPPM(File file) throws IOException {
-    Scanner sc = new Scanner(file);
-    StringBuilder builder = new StringBuilder();
-    while (sc.hasNextLine()) {
-      String line = sc.nextLine().trim();
-      if (!line.isEmpty() && line.charAt(0) != '#') {
-        builder.append(line).append(System.lineSeparator());
-      }
+  LoadCommand(String path, String name, String extension, String keyword, String scale) {
+    if (!keyword.equals("scale")) {
+      throw new IllegalArgumentException("Invalid Command");
     }
-
-    sc = new Scanner(builder.toString());
-    String token = sc.next();
-    if (!token.equals("P3")) {
-      throw new IllegalArgumentException("Invalid PPM file: plain RAW file should begin with P3");
+    if (!extension.equals("hwc")) {
+      throw new IllegalArgumentException("Only HWC images can be loaded at a reduced scale");
     }
-
-    int width = sc.nextInt();
-    int height = sc.nextInt();
-    int maxValue = sc.nextInt();
-
-    int[][][] rgb = new int[height][width][3];
-
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        rgb[i][j][0] = sc.nextInt();
-        rgb[i][j][1] = sc.nextInt();
-        rgb[i][j][2] = sc.nextInt();
-      }
+    this.path = path;
+    this.name = name;
+    this.extension = extension;
+    try {
+      this.scale = Integer.parseInt(scale);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Scale must be an integer");
     }
-    return rgb;
-  }
-
-  /**
-   * This method helps in converting a BufferImage into a 3D matrix of pixels.
-   *
-   * @param image the Buffered image that has to be converted.
-   * @return the 3D matrix representation of the buffered image.
-   */
-  private static int[][][] getRGBMatrix(BufferedImage image) {
-    int height = image.getHeight();
-    int width = image.getWidth();
-    int[][][] rgbMatrix = new int[height][width][3];
-
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        int rgbValue = image.getRGB(j, i);
-
-        int red = (rgbValue >> 16) & 0xFF;
-        int green = (rgbValue >> 8) & 0xFF;
-        int blue = rgbValue & 0xFF;
-
-        rgbMatrix[i][j][0] = red;
-        rgbMatrix[i][j][1] = green;
-        rgbMatrix[i][j][2] = blue;
-      }
+    if (this.scale != 2 && this.scale != 4 && this.scale != 8) {
+      throw new IllegalArgumentException("Scale must be 2, 4 or 8");
     }
-    return rgbMatrix;
   }
 
   /**
@@ -107,17 +71,29 @@ class LoadCommand extends AbstractCommand {
    */
   @Override
   void execute(ImageModel model) {
+    model.loadImage(name, this.decode());
+  }
+
+  /**
+   * Reads and decodes the image file without touching any model, so that it can be done ahead of
+   * time on another thread.
+   *
+   * @return the decoded image as a 3D RGB array.
+   * @throws RuntimeException if the extension is not supported or the file cannot be read.
+   */
+  int[][][] decode() {
     try {
       switch (extension) {
         case "png":
         case "jpg":
         case "jpeg":
           BufferedImage image = ImageIO.read(new File(path));
-          model.loadImage(name, getRGBMatrix(image));
-          break;
+          return RasterConversion.toRgb(image);
         case "ppm":
-          model.loadImage(name, loadPPM(new File(path)));
-          break;
+        case "pgm":
+          return PpmImageFormat.read(new File(path));
+        case "hwc":
+          return WaveletImageFormat.read(new File(path), scale);
         default:
           throw new RuntimeException("Invalid extension!");
       }
@@ -126,4 +102,22 @@ class LoadCommand extends AbstractCommand {
     }
   }
 
-}
\ No newline at end of file
+  /**
+   * Returns the file path the image is loaded from.
+   *
+   * @return the file path.
+   */
+  String getPath() {
+    return this.path;
+  }
+
+  /**
+   * Returns the name the image is loaded under.
+   *
+   * @return the name of the image in the model.
+   */
+  String getName() {
+    return this.name;
+  }
+
+}
@@ -0,0 +1,202 @@
+package controller;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The LoadPrefetcher class decodes the images loaded by a script ahead of time. Before the script
+ * runs, its lines are scanned for load commands, and the images they read are decoded in parallel
+ * on a pool with one daemon thread per processor while the script runs. At most a window of
+ * decodes, one per thread by default, is outstanding at a time: the next load of the script is
+ * submitted only when the script takes a decoded image, so the images held ahead of the script are
+ * bounded by the window rather than by the number of loads in the script. The model still receives
+ * each image only when the script reaches its load line, and a decode that failed is reported on
+ * that line with the same message as a load executed in place.
+ *
+ * <p>A load is not prefetched when an earlier line of the script saves to the same file, since the
+ * file it reads does not exist yet, nor when the command is not valid; those lines are executed in
+ * place as before. Files still being written by earlier saves are waited for before being read.
+ */
+class LoadPrefetcher {
+
+  private static final long KEEP_ALIVE_SECONDS = 5;
+
+  private final int window;
+  private final SaveQueue saves;
+  private final LinkedHashMap<Integer, LoadCommand> pending;
+  private final Map<Integer, Future<int[][][]>> decodes;
+  private ThreadPoolExecutor executor;
+
+  /**
+   * Scans the lines of a script and starts decoding the images its first load commands read, one
+   * per processor.
+   *
+   * @param lines the lines of the script; line {@code n} is at index {@code n - 1}.
+   * @param saves the queue writing saved images, waited on for files the script will read.
+   */
+  LoadPrefetcher(List<String> lines, SaveQueue saves) {
+    this(lines, saves, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Scans the lines of a script and starts decoding the images its first load commands read.
+   *
+   * @param lines  the lines of the script; line {@code n} is at index {@code n - 1}.
+   * @param saves  the queue writing saved images, waited on for files the script will read.
+   * @param window the largest number of images decoded ahead of the script at a time.
+   */
+  LoadPrefetcher(List<String> lines, SaveQueue saves, int window) {
+    this.window = Math.max(1, window);
+    this.saves = saves;
+    this.pending = new LinkedHashMap<>();
+    this.decodes = new HashMap<>();
+    Set<Path> written = new HashSet<>();
+    for (int i = 0; i < lines.size(); i++) {
+      String line = lines.get(i).trim();
+      if (line.isEmpty() || line.charAt(0) == '#') {
+        continue;
+      }
+      String[] tokens = line.replaceAll("\\s+", " ").split(" ");
+      String command = tokens[0].toLowerCase();
+      if (tokens.length < 2 || !(command.equals("load") || command.equals("save"))) {
+        continue;
+      }
+      Path key = SaveQueue.key(tokens[1]);
+      if (command.equals("save")) {
+        written.add(key);
+      } else if (!written.contains(key)) {
+        tokens[0] = command;
+        try {
+          this.pending.put(i + 1, (LoadCommand) CommandFactory.createCommand(tokens));
+        } catch (IllegalArgumentException e) {
+          // invalid commands are executed in place and report their own error
+        }
+      }
+    }
+    this.fill();
+  }
+
+  /**
+   * Submits the pending loads of the script, in order, until the window of outstanding decodes
+   * is full.
+   */
+  private void fill() {
+    Iterator<Map.Entry<Integer, LoadCommand>> iterator = this.pending.entrySet().iterator();
+    while (this.decodes.size() < this.window && iterator.hasNext()) {
+      Map.Entry<Integer, LoadCommand> next = iterator.next();
+      iterator.remove();
+      this.submit(next.getKey(), next.getValue());
+    }
+  }
+
+  /**
+   * Starts decoding the image of a load command.
+   *
+   * @param lineNumber the line number of the command.
+   * @param load       the command.
+   */
+  private void submit(int lineNumber, LoadCommand load) {
+    if (this.executor == null) {
+      int threads = Math.min(this.window, Runtime.getRuntime().availableProcessors());
+      this.executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS,
+          TimeUnit.SECONDS, new LinkedBlockingQueue<>(), task -> {
+            Thread thread = new Thread(task, "image-load");
+            thread.setDaemon(true);
+            return thread;
+          });
+      this.executor.allowCoreThreadTimeOut(true);
+    }
+    this.saves.await(load.getPath());
+    this.decodes.put(lineNumber, this.executor.submit(load::decode));
+  }
+
+  /**
+   * Returns whether the image of the load command on a line is decoded ahead of time, either
+   * being decoded already or waiting for room in the window.
+   *
+   * @param lineNumber the line number of the command.
+   * @return true if the image is prefetched.
+   */
+  boolean has(int lineNumber) {
+    return this.decodes.containsKey(lineNumber) || this.pending.containsKey(lineNumber);
+  }
+
+  /**
+   * Returns the number of images being decoded or decoded and not yet taken.
+   *
+   * @return the number of outstanding decodes, never more than the window.
+   */
+  int outstanding() {
+    return this.decodes.size();
+  }
+
+  /**
+   * Waits for and returns the image of the load command on a line. Prefetched loads of earlier
+   * lines that were not taken are dropped, and the load of the next line in the script takes the
+   * place of this one in the window.
+   *
+   * @param lineNumber the line number of the command.
+   * @return the decoded image as a 3D RGB array.
+   * @throws RuntimeException if decoding failed, with the message of the failure.
+   */
+  int[][][] take(int lineNumber) {
+    this.pending.keySet().removeIf(line -> line < lineNumber);
+    Iterator<Map.Entry<Integer, Future<int[][][]>>> earlier = this.decodes.entrySet().iterator();
+    while (earlier.hasNext()) {
+      Map.Entry<Integer, Future<int[][][]>> entry = earlier.next();
+      if (entry.getKey() < lineNumber) {
+        entry.getValue().cancel(true);
+        earlier.remove();
+      }
+    }
+    if (!this.decodes.containsKey(lineNumber)) {
+      this.fill();
+    }
+    Future<int[][][]> decode = this.decodes.remove(lineNumber);
+    this.fill();
+    boolean interrupted = false;
+    try {
+      while (true) {
+        try {
+          return decode.get();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof RuntimeException) {
+            throw (RuntimeException) e.getCause();
+          }
+          throw new RuntimeException("Error loading Image!", e.getCause());
+        }
+      }
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Cancels the decodes of the lines the script did not reach and releases the pool.
+   */
+  void cancel() {
+    for (Future<int[][][]> decode : this.decodes.values()) {
+      decode.cancel(true);
+    }
+    this.decodes.clear();
+    this.pending.clear();
+    if (this.executor != null) {
+      this.executor.shutdown();
+    }
+  }
+}
@@ -0,0 +1,64 @@
+package controller;
+
+import model.ImageModel;
+import model.ImageModelV4;
+
+/**
+ * The MorphologyCommand class encapsulates the action of eroding, dilating, opening or closing the
+ * selected region of a mask image with a rectangular structuring element. It extends the
+ * AbstractCommand class, following the Command design pattern. The resulting mask can be used with
+ * any masked operation. This command is responsible for invoking the morphology functionality
+ * provided by the ImageModelV4 class.
+ */
+class MorphologyCommand extends AbstractCommand {
+
+  private final String operation;
+  private final String maskImage;
+  private final String saveImage;
+  private final int elementHeight;
+  private final int elementWidth;
+
+  /**
+   * Constructs a MorphologyCommand with the specified operation, structuring element and image
+   * names.
+   *
+   * @param operation     The operation, "erode", "dilate", "open" or "close".
+   * @param elementHeight The height of the structuring element.
+   * @param elementWidth  The width of the structuring element.
+   * @param maskImage     The name of the mask image.
+   * @param saveImage     The name under which the resulting mask will be saved.
+   * @throws IllegalArgumentException if the height or width is not a valid integer.
+   */
+  MorphologyCommand(String operation, String elementHeight, String elementWidth, String maskImage,
+      String saveImage) {
+    this.operation = operation;
+    this.maskImage = maskImage;
+    this.saveImage = saveImage;
+    try {
+      this.elementHeight = Integer.parseInt(elementHeight);
+      this.elementWidth = Integer.parseInt(elementWidth);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Structuring element size should be integers!");
+    }
+  }
+
+  /**
+   * Executes the morphology command on the provided ImageModel. This method checks if the provided
+   * model is an instance of ImageModelV4, which contains the morphology functionality, and
+   * otherwise throws an IllegalArgumentException to indicate that the command is invalid for the
+   * given model type.
+   *
+   * @param model The ImageModel instance on which the command is to be executed.
+   * @throws IllegalArgumentException if the provided model does not support morphology.
+   */
+  @Override
+  void execute(ImageModel model) {
+    if (model instanceof ImageModelV4) {
+      ((ImageModelV4) model).applyMorphology(operation, maskImage, saveImage, elementHeight,
+          elementWidth);
+    } else {
+      throw new IllegalArgumentException("Invalid Command");
+    }
+  }
+
+}
@@ -0,0 +1,335 @@
+package controller;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.IntStream;
+
+/**
+ * The PpmImageFormat class reads and writes Netpbm images: plain (P3) and binary (P6) PPM colour
+ * images and binary (P5) PGM greyscale images. The file is memory mapped and read by a tokenizer
+ * that parses the header, and the ASCII samples of plain files, straight from the mapped bytes, so
+ * neither the text of the file nor any intermediate tokens are held in memory. Comments, which run
+ * from a '#' to the end of the line, may appear between any two tokens of the header. The samples
+ * of binary files follow the single whitespace byte after the header and are copied in bulk, a row
+ * at a time, before being unpacked into the pixel matrix.
+ *
+ * <p>The maximum value given in the header must lie between 1 and 65535, and every sample must not
+ * exceed it. Binary samples take one byte when the maximum value is below 256 and two big-endian
+ * bytes otherwise. Samples of images whose maximum value is not 255 are scaled to the 0-255 range,
+ * and greyscale samples are copied to all three channels. Binary images are written with a maximum
+ * value of 255; greyscale images are written from the luma of every pixel. Plain images are
+ * written with one pixel per line.
+ */
+class PpmImageFormat {
+
+  private static final int BAND_ROWS = 32;
+  private static final int MAX_PIXEL_BYTES = "255 255 255\n".length();
+  private static final byte[][] DIGITS = new byte[256][];
+
+  static {
+    for (int value = 0; value < DIGITS.length; value++) {
+      DIGITS[value] = Integer.toString(value).getBytes(StandardCharsets.US_ASCII);
+    }
+  }
+
+  private final ByteBuffer buffer;
+
+  /**
+   * Constructs a tokenizer reading from the given buffer.
+   *
+   * @param buffer the contents of the file.
+   */
+  private PpmImageFormat(ByteBuffer buffer) {
+    this.buffer = buffer;
+  }
+
+  /**
+   * Reads a PPM or PGM image file into a 3D RGB matrix.
+   *
+   * @param file the image file to read.
+   * @return a 3D array representing the image's RGB pixel data.
+   * @throws IOException              if there is an issue reading the file.
+   * @throws IllegalArgumentException if the file is not a valid P3, P5 or P6 file.
+   */
+  static int[][][] read(File file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      PpmImageFormat reader = new PpmImageFormat(
+          channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+      int magic = reader.nextByte() == 'P' ? reader.nextByte() : -1;
+      if ((magic != '3' && magic != '5' && magic != '6') || !reader.endsToken()) {
+        throw new IllegalArgumentException(
+            "Invalid PPM file: file should begin with P3, P5 or P6");
+      }
+      int width = reader.nextInt();
+      int height = reader.nextInt();
+      int maxValue = reader.nextInt();
+      if (width <= 0 || height <= 0) {
+        throw new IllegalArgumentException("Invalid PPM file: width and height must be positive");
+      }
+      if (maxValue < 1 || maxValue > 65535) {
+        throw new IllegalArgumentException(
+            "Invalid PPM file: max value must be between 1 and 65535");
+      }
+
+      int[][][] rgb = new int[height][width][3];
+      if (magic == '3') {
+        for (int i = 0; i < height; i++) {
+          for (int j = 0; j < width; j++) {
+            int[] pixel = rgb[i][j];
+            for (int k = 0; k < 3; k++) {
+              pixel[k] = scale(reader.nextInt(), maxValue);
+            }
+          }
+        }
+      } else {
+        reader.readBinary(rgb, magic == '6' ? 3 : 1, maxValue);
+      }
+      return rgb;
+    }
+  }
+
+  /**
+   * Copies the binary samples following the header into the pixel matrix, one row at a time.
+   *
+   * @param rgb      receives the pixels.
+   * @param channels 3 for RGB samples, 1 for greyscale samples.
+   * @param maxValue the maximum value of the file.
+   * @throws IllegalArgumentException if the file ends early or a sample exceeds the maximum value.
+   */
+  private void readBinary(int[][][] rgb, int channels, int maxValue) {
+    int width = rgb[0].length;
+    int bytes = maxValue < 256 ? 1 : 2;
+    byte[] row = new byte[width * channels * bytes];
+    if ((long) row.length * rgb.length > this.buffer.remaining()) {
+      throw new IllegalArgumentException("Invalid PPM file: unexpected end of file");
+    }
+    for (int[][] pixels : rgb) {
+      this.buffer.get(row);
+      int position = 0;
+      for (int j = 0; j < width; j++) {
+        int[] pixel = pixels[j];
+        for (int k = 0; k < channels; k++) {
+          int value = row[position++] & 0xFF;
+          if (bytes == 2) {
+            value = value << 8 | row[position++] & 0xFF;
+          }
+          pixel[k] = scale(value, maxValue);
+        }
+        if (channels == 1) {
+          pixel[1] = pixel[0];
+          pixel[2] = pixel[0];
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes a 3D RGB matrix as a plain (P3) PPM image with one pixel per line. Samples outside 0-255
+   * are clamped. The text is formatted straight into reusable byte buffers from a table of the
+   * digits of every sample value, with no strings created per pixel. Rows are formatted in bands
+   * of {@value #BAND_ROWS} rows, a batch of bands in parallel, and every batch is written in order
+   * through a FileChannel.
+   *
+   * @param file the file to write.
+   * @param rgb  the image.
+   * @throws IOException if there is an issue writing the file.
+   */
+  static void writePlain(File file, int[][][] rgb) throws IOException {
+    int height = rgb.length;
+    int width = rgb[0].length;
+    int bands = (height + BAND_ROWS - 1) / BAND_ROWS;
+    int batch = Math.min(bands, Runtime.getRuntime().availableProcessors());
+    ByteBuffer[] buffers = new ByteBuffer[batch];
+    for (int b = 0; b < batch; b++) {
+      buffers[b] = ByteBuffer.allocate(BAND_ROWS * width * MAX_PIXEL_BYTES);
+    }
+    byte[] header = ("P3\n" + width + " " + height + "\n255\n")
+        .getBytes(StandardCharsets.US_ASCII);
+
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE,
+        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      writeFully(channel, ByteBuffer.wrap(header));
+      for (int first = 0; first < bands; first += batch) {
+        int start = first;
+        int count = Math.min(batch, bands - first);
+        IntStream.range(0, count).parallel().forEach(b -> {
+          ByteBuffer buffer = buffers[b];
+          buffer.clear();
+          int end = Math.min(height, (start + b + 1) * BAND_ROWS);
+          for (int i = (start + b) * BAND_ROWS; i < end; i++) {
+            for (int[] pixel : rgb[i]) {
+              buffer.put(DIGITS[clamp(pixel[0])]).put((byte) ' ');
+              buffer.put(DIGITS[clamp(pixel[1])]).put((byte) ' ');
+              buffer.put(DIGITS[clamp(pixel[2])]).put((byte) '\n');
+            }
+          }
+          buffer.flip();
+        });
+        for (int b = 0; b < count; b++) {
+          writeFully(channel, buffers[b]);
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes a 3D RGB matrix as a binary image, P6 for colour or P5 for greyscale. Samples outside
+   * 0-255 are clamped.
+   *
+   * @param file the file to write.
+   * @param rgb  the image.
+   * @param grey true to write a P5 greyscale image of the luma of every pixel.
+   * @throws IOException if there is an issue writing the file.
+   */
+  static void writeBinary(File file, int[][][] rgb, boolean grey) throws IOException {
+    int height = rgb.length;
+    int width = rgb[0].length;
+    int channels = grey ? 1 : 3;
+    byte[] header = ((grey ? "P5" : "P6") + "\n" + width + " " + height + "\n255\n")
+        .getBytes(StandardCharsets.US_ASCII);
+    ByteBuffer row = ByteBuffer.allocate(width * channels);
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE,
+        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      writeFully(channel, ByteBuffer.wrap(header));
+      for (int[][] pixels : rgb) {
+        row.clear();
+        for (int[] pixel : pixels) {
+          if (grey) {
+            row.put((byte) clamp(
+                (int) Math.round(0.2126 * pixel[0] + 0.7152 * pixel[1] + 0.0722 * pixel[2])));
+          } else {
+            row.put((byte) clamp(pixel[0]));
+            row.put((byte) clamp(pixel[1]));
+            row.put((byte) clamp(pixel[2]));
+          }
+        }
+        row.flip();
+        writeFully(channel, row);
+      }
+    }
+  }
+
+  /**
+   * Writes all remaining bytes of a buffer to a channel.
+   *
+   * @param channel the channel.
+   * @param buffer  the bytes to write.
+   * @throws IOException if there is an issue writing the file.
+   */
+  private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  /**
+   * Clamps a sample to the range 0-255.
+   *
+   * @param value the sample.
+   * @return the clamped sample.
+   */
+  private static int clamp(int value) {
+    return Math.max(0, Math.min(255, value));
+  }
+
+  /**
+   * Validates a sample and scales it from the range of the file to 0-255.
+   *
+   * @param value    the sample.
+   * @param maxValue the maximum value of the file.
+   * @return the sample in the range 0-255.
+   * @throws IllegalArgumentException if the sample exceeds the maximum value.
+   */
+  private static int scale(int value, int maxValue) {
+    if (value > maxValue) {
+      throw new IllegalArgumentException("Invalid PPM file: value exceeds the max value");
+    }
+    if (maxValue == 255) {
+      return value;
+    }
+    return (value * 255 + maxValue / 2) / maxValue;
+  }
+
+  /**
+   * Returns the next byte of the file.
+   *
+   * @return the next byte, or -1 at the end of the file.
+   */
+  private int nextByte() {
+    return this.buffer.hasRemaining() ? this.buffer.get() & 0xFF : -1;
+  }
+
+  /**
+   * Checks that the token just read is followed by whitespace, a comment or the end of the file.
+   *
+   * @return true if the token has ended.
+   */
+  private boolean endsToken() {
+    int c = this.nextByte();
+    if (c == '#') {
+      this.skipComment();
+      return true;
+    }
+    return c == -1 || isWhitespace(c);
+  }
+
+  /**
+   * Skips the rest of a comment, up to and including the end of the line.
+   */
+  private void skipComment() {
+    int c;
+    do {
+      c = this.nextByte();
+    } while (c != '\n' && c != '\r' && c != -1);
+  }
+
+  /**
+   * Reads the next non-negative decimal integer, skipping whitespace and comments before it.
+   *
+   * @return the integer.
+   * @throws IllegalArgumentException if the file ends or the next token is not an integer.
+   */
+  private int nextInt() {
+    int c = this.nextByte();
+    while (c == '#' || isWhitespace(c)) {
+      if (c == '#') {
+        this.skipComment();
+      }
+      c = this.nextByte();
+    }
+    if (c == -1) {
+      throw new IllegalArgumentException("Invalid PPM file: unexpected end of file");
+    }
+    if (c < '0' || c > '9') {
+      throw new IllegalArgumentException("Invalid PPM file: expected an integer");
+    }
+    long value = 0;
+    while (c >= '0' && c <= '9') {
+      value = value * 10 + (c - '0');
+      if (value > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("Invalid PPM file: integer out of range");
+      }
+      c = this.nextByte();
+    }
+    if (c == '#') {
+      this.skipComment();
+    } else if (c != -1 && !isWhitespace(c)) {
+      throw new IllegalArgumentException("Invalid PPM file: expected an integer");
+    }
+    return (int) value;
+  }
+
+  /**
+   * Returns whether a byte is ASCII whitespace as defined by the PPM format.
+   *
+   * @param c the byte.
+   * @return true for spaces, tabs, line feeds, vertical tabs, form feeds and carriage returns.
+   */
+  private static boolean isWhitespace(int c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+  }
+}
@@ -0,0 +1,195 @@
+package controller;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.stream.IntStream;
+
+/**
+ * The RasterConversion class converts between BufferedImages and the 3D RGB matrices held by the
+ * model. Reading a decoded image pixel by pixel through {@code getRGB} converts every pixel through
+ * the colour model of the image, which dominates the time taken to load a large file. The layouts
+ * ImageIO commonly decodes to are therefore read straight from the data buffer of the raster:
+ * interleaved bytes ({@code TYPE_3BYTE_BGR}, {@code TYPE_4BYTE_ABGR}), packed ints
+ * ({@code TYPE_INT_RGB}, {@code TYPE_INT_ARGB}) and grey bytes ({@code TYPE_BYTE_GRAY}, whose
+ * stored value is copied to all three channels). Any other layout, such as indexed or 16-bit
+ * images, is read through one bulk {@code getRGB} call per row. Rows are converted in parallel.
+ *
+ * <p>In the other direction a matrix can be wrapped, without copying, as a BufferedImage whose data
+ * buffer reads the pixels of the matrix as packed RGB ints; encoders then read the memory of the
+ * model directly. Images that are painted repeatedly are better packed once into an ordinary
+ * {@code TYPE_INT_RGB} image, since Java2D only blits its own data buffers quickly, and that
+ * packing writes the int array of the image directly, a row per task.
+ */
+class RasterConversion {
+
+  /**
+   * Converts a decoded image into a 3D RGB matrix, alpha being dropped.
+   *
+   * @param image the image.
+   * @return the 3D matrix representation of the image.
+   */
+  static int[][][] toRgb(BufferedImage image) {
+    int height = image.getHeight();
+    int width = image.getWidth();
+    int[][][] rgb = new int[height][width][3];
+    WritableRaster raster = image.getRaster();
+    DataBuffer buffer = raster.getDataBuffer();
+    int type = image.getType();
+
+    if (buffer.getNumBanks() == 1 && buffer instanceof DataBufferByte
+        && raster.getSampleModel() instanceof ComponentSampleModel
+        && (type == BufferedImage.TYPE_3BYTE_BGR || type == BufferedImage.TYPE_4BYTE_ABGR
+        || type == BufferedImage.TYPE_BYTE_GRAY)) {
+      ComponentSampleModel model = (ComponentSampleModel) raster.getSampleModel();
+      byte[] data = ((DataBufferByte) buffer).getData();
+      int scanline = model.getScanlineStride();
+      int stride = model.getPixelStride();
+      int[] offsets = model.getBandOffsets();
+      int red = offsets[0];
+      int green = type == BufferedImage.TYPE_BYTE_GRAY ? offsets[0] : offsets[1];
+      int blue = type == BufferedImage.TYPE_BYTE_GRAY ? offsets[0] : offsets[2];
+      int origin = buffer.getOffset() - raster.getSampleModelTranslateY() * scanline
+          - raster.getSampleModelTranslateX() * stride;
+      IntStream.range(0, height).parallel().forEach(i -> {
+        int position = origin + i * scanline;
+        for (int[] pixel : rgb[i]) {
+          pixel[0] = data[position + red] & 0xFF;
+          pixel[1] = data[position + green] & 0xFF;
+          pixel[2] = data[position + blue] & 0xFF;
+          position += stride;
+        }
+      });
+    } else if (buffer.getNumBanks() == 1 && buffer instanceof DataBufferInt
+        && raster.getSampleModel() instanceof SinglePixelPackedSampleModel
+        && (type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB)) {
+      SinglePixelPackedSampleModel model = (SinglePixelPackedSampleModel) raster.getSampleModel();
+      int[] data = ((DataBufferInt) buffer).getData();
+      int scanline = model.getScanlineStride();
+      int origin = buffer.getOffset() - raster.getSampleModelTranslateY() * scanline
+          - raster.getSampleModelTranslateX();
+      IntStream.range(0, height).parallel().forEach(i ->
+          unpack(data, origin + i * scanline, rgb[i]));
+    } else {
+      IntStream.range(0, height).parallel().forEach(i ->
+          unpack(image.getRGB(0, i, width, 1, null, 0, width), 0, rgb[i]));
+    }
+    return rgb;
+  }
+
+  /**
+   * Wraps a 3D RGB matrix as a BufferedImage backed by the matrix itself. Reading a pixel of the
+   * image packs the RGB values of the matrix, clamped to 0-255, and writing one stores into the
+   * matrix, so later changes to either are seen by the other.
+   *
+   * @param rgb the 3D RGB matrix.
+   * @return the image backed by the matrix.
+   */
+  static BufferedImage wrap(int[][][] rgb) {
+    int height = rgb.length;
+    int width = rgb[0].length;
+    int[] masks = {0xFF0000, 0xFF00, 0xFF};
+    SinglePixelPackedSampleModel model =
+        new SinglePixelPackedSampleModel(DataBuffer.TYPE_INT, width, height, masks);
+    WritableRaster raster = Raster.createWritableRaster(model, new MatrixDataBuffer(rgb), null);
+    return new BufferedImage(new DirectColorModel(24, masks[0], masks[1], masks[2]), raster,
+        false, null);
+  }
+
+  /**
+   * Packs a 3D RGB matrix into a new {@code TYPE_INT_RGB} image, writing the int array of its
+   * raster directly. Values are clamped to 0-255.
+   *
+   * @param rgb the 3D RGB matrix.
+   * @return the packed image.
+   */
+  static BufferedImage toPackedImage(int[][][] rgb) {
+    int height = rgb.length;
+    int width = rgb[0].length;
+    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    int[] data = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    IntStream.range(0, height).parallel().forEach(i -> {
+      int position = i * width;
+      for (int[] pixel : rgb[i]) {
+        data[position++] = pack(pixel);
+      }
+    });
+    return image;
+  }
+
+  /**
+   * Packs the RGB values of a pixel into an int, clamping them to 0-255.
+   *
+   * @param pixel the RGB values.
+   * @return the packed pixel.
+   */
+  private static int pack(int[] pixel) {
+    return clamp(pixel[0]) << 16 | clamp(pixel[1]) << 8 | clamp(pixel[2]);
+  }
+
+  /**
+   * Clamps a value to the range 0-255.
+   *
+   * @param value the value.
+   * @return the clamped value.
+   */
+  private static int clamp(int value) {
+    return Math.max(0, Math.min(255, value));
+  }
+
+  /**
+   * Unpacks a row of packed RGB pixels.
+   *
+   * @param packed the packed pixels.
+   * @param offset the position of the first pixel of the row.
+   * @param row    receives the RGB values of the row.
+   */
+  private static void unpack(int[] packed, int offset, int[][] row) {
+    for (int j = 0; j < row.length; j++) {
+      int value = packed[offset + j];
+      row[j][0] = (value >> 16) & 0xFF;
+      row[j][1] = (value >> 8) & 0xFF;
+      row[j][2] = value & 0xFF;
+    }
+  }
+
+  /**
+   * A data buffer of packed RGB ints backed by a 3D RGB matrix. Element {@code i} is the pixel in
+   * row {@code i / width} and column {@code i % width}.
+   */
+  private static class MatrixDataBuffer extends DataBuffer {
+
+    private final int[][][] rgb;
+    private final int width;
+
+    /**
+     * Constructs a data buffer over the given matrix.
+     *
+     * @param rgb the 3D RGB matrix.
+     */
+    MatrixDataBuffer(int[][][] rgb) {
+      super(DataBuffer.TYPE_INT, rgb.length * rgb[0].length);
+      this.rgb = rgb;
+      this.width = rgb[0].length;
+    }
+
+    @Override
+    public int getElem(int bank, int i) {
+      return pack(this.rgb[i / this.width][i % this.width]);
+    }
+
+    @Override
+    public void setElem(int bank, int i, int val) {
+      int[] pixel = this.rgb[i / this.width][i % this.width];
+      pixel[0] = (val >> 16) & 0xFF;
+      pixel[1] = (val >> 8) & 0xFF;
+      pixel[2] = val & 0xFF;
+    }
+  }
+}
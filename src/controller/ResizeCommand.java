@@ -0,0 +1,61 @@
+package controller;
+
+import model.ImageModel;
+import model.ImageModelV4;
+
+/**
+ * The ResizeCommand class encapsulates the action of resizing a specified image to any height and
+ * width with a bicubic or Lanczos resampling filter. It extends the AbstractCommand class,
+ * following the Command design pattern. Unlike downscaling, the target may be larger than the
+ * image. This command is responsible for invoking the resize functionality provided by the
+ * ImageModelV4 class.
+ */
+class ResizeCommand extends AbstractCommand {
+
+  private final String imageName;
+  private final String saveImage;
+  private final int height;
+  private final int width;
+  private final String filter;
+
+  /**
+   * Constructs a ResizeCommand with the specified dimensions, image names and filter.
+   *
+   * @param height    The desired height for the resized image.
+   * @param width     The desired width for the resized image.
+   * @param imageName The name of the input image to be resized.
+   * @param saveImage The name of the output image where the resized image will be saved.
+   * @param filter    The resampling filter, "bicubic" or "lanczos".
+   * @throws IllegalArgumentException if the height or width is not a valid integer.
+   */
+  ResizeCommand(String height, String width, String imageName, String saveImage, String filter) {
+    this.imageName = imageName;
+    this.saveImage = saveImage;
+    this.filter = filter;
+    try {
+      this.height = Integer.parseInt(height);
+      this.width = Integer.parseInt(width);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Height and width should be integers!");
+    }
+  }
+
+  /**
+   * Executes the resize command on the provided ImageModel. This method checks if the provided
+   * model is an instance of ImageModelV4, which contains the resize functionality, and otherwise
+   * throws an IllegalArgumentException to indicate that the command is invalid for the given model
+   * type.
+   *
+   * @param model The ImageModel instance on which the command is to be executed.
+   * @throws IllegalArgumentException if the provided model does not support resizing.
+   */
+  @Override
+  void execute(ImageModel model) {
+    if (model instanceof ImageModelV4) {
+      ((ImageModelV4) model).applyResize(imageName, saveImage, height, width, filter);
+    } else {
+      throw new IllegalArgumentException("Invalid Command");
+    }
+  }
+
+}
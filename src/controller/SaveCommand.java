@@ -1,23 +1,25 @@
 package controller;
 
-import java.awt.image.BufferedImage;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.util.List;
 import javax.imageio.ImageIO;
 import model.ImageModel;
 
 /**
  * The SaveCommand class is a concrete implementation of the AbstractCommand class, responsible for
  * saving an image from a specified file path and the specific name provided by the user via
- * command.
+ * command. PPM images are saved as plain text (P3) unless the binary option asks for P6, and PGM
+ * images are always saved as binary greyscale (P5). HWC images are saved losslessly unless a
+ * quantisation step is given.
  */
 class SaveCommand extends AbstractCommand {
 
   private final String path;
   private final String fetchImage;
   private final String extension;
+  private final int step;
+  private final boolean binary;
 
   /**
    * Constructs a SaveCommand with the specified parameters.
@@ -30,56 +32,69 @@ class SaveCommand extends AbstractCommand {
     this.path = path;
     this.fetchImage = fetchImage;
     this.extension = extension;
+    this.step = 0;
+    this.binary = false;
   }
 
   /**
-   * Saves a PPM image file from a 3D RGB matrix.
+   * Constructs a SaveCommand with a save option, which either saves a wavelet image losslessly, as
+   * it is saved by default, or saves a PPM image in binary.
    *
-   * @param file    The file writer object for saving the image.
-   * @param saveRGB The 3D RGB matrix representing the image.
-   * @throws IOException if an error occurs while writing the file.
+   * @param path       The file path where the image should be saved.
+   * @param fetchImage The name of the image to be fetched from the model.
+   * @param extension  The file extension for the saved image, "hwc" for the lossless option and
+   *                   "ppm" for the binary option.
+   * @param option     The save option, "lossless" or "binary".
+   * @throws IllegalArgumentException if the option is not valid for the given file.
    */
-  private void savePPM(FileWriter file, int[][][] saveRGB) throws IOException {
-    int[][][] rgb = saveRGB.clone();
-    int height = rgb.length;
-    int width = rgb[0].length;
-
-    PrintWriter writer = new PrintWriter(file);
-    writer.println("P3");
-    writer.println(width + " " + height);
-    writer.println("255");
-
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        writer.println(rgb[i][j][0] + " " + rgb[i][j][1] + " " + rgb[i][j][2]);
-      }
+  SaveCommand(String path, String fetchImage, String extension, String option) {
+    if (!option.equals("lossless") && !option.equals("binary")) {
+      throw new IllegalArgumentException("Invalid Command");
     }
-    writer.close();
+    if (option.equals("lossless") && !extension.equals("hwc")) {
+      throw new IllegalArgumentException("Only HWC images can be saved losslessly");
+    }
+    if (option.equals("binary") && !extension.equals("ppm")) {
+      throw new IllegalArgumentException("Only PPM images can be saved in binary");
+    }
+    this.path = path;
+    this.fetchImage = fetchImage;
+    this.extension = extension;
+    this.step = 0;
+    this.binary = option.equals("binary");
   }
 
   /**
-   * Converts a 3D RGB matrix into a BufferedImage for saving in other formats.
+   * Constructs a SaveCommand saving a wavelet image lossily with the given quantisation step. The
+   * Haar coefficients of the image are divided by the step and rounded, so larger steps give
+   * smaller files and coarser images.
    *
-   * @param saveRGB The 3D RGB matrix.
-   * @return A BufferedImage created from the RGB matrix.
+   * @param path       The file path where the image should be saved.
+   * @param fetchImage The name of the image to be fetched from the model.
+   * @param extension  The file extension for the saved image, which must be "hwc".
+   * @param option     The save option, which must be "step".
+   * @param step       The quantisation step, a positive integer.
+   * @throws IllegalArgumentException if the option or step is not valid for the given file.
    */
-  private BufferedImage toBufferedImage(int[][][] saveRGB) {
-    int height = saveRGB.length;
-    int width = saveRGB[0].length;
-
-    BufferedImage bufferedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-    int[] pixels = new int[width * height];
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        int red = Math.max(0, Math.min(255, saveRGB[i][j][0]));
-        int green = Math.max(0, Math.min(255, saveRGB[i][j][1]));
-        int blue = Math.max(0, Math.min(255, saveRGB[i][j][2]));
-        int rgbValue = (red << 16) | (green << 8) | blue;
-        pixels[i * width + j] = rgbValue;
-      }
+  SaveCommand(String path, String fetchImage, String extension, String option, String step) {
+    if (!option.equals("step")) {
+      throw new IllegalArgumentException("Invalid Command");
+    }
+    if (!extension.equals("hwc")) {
+      throw new IllegalArgumentException("Only HWC images can be saved with a quantisation step");
     }
-    bufferedImage.setRGB(0, 0, width, height, pixels, 0, width);
-    return bufferedImage;
+    try {
+      this.step = Integer.parseInt(step);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Quantisation step must be a positive integer");
+    }
+    if (this.step < 1) {
+      throw new IllegalArgumentException("Quantisation step must be a positive integer");
+    }
+    this.path = path;
+    this.fetchImage = fetchImage;
+    this.extension = extension;
+    this.binary = false;
   }
 
   /**
@@ -90,27 +105,86 @@ class SaveCommand extends AbstractCommand {
    */
   @Override
   void execute(ImageModel model) {
+    this.prepare(model).run();
+  }
+
+  /**
+   * Fetches the image from the model and checks the destination, returning the task that encodes
+   * and writes the file. The model replaces images rather than changing them in place, so the
+   * fetched matrix is an immutable snapshot and the task may run later, on another thread, while
+   * the model goes on changing.
+   *
+   * @param model The ImageModel instance holding the image.
+   * @return the task writing the file, which throws a RuntimeException if writing fails.
+   * @throws RuntimeException if the extension is not supported or the destination directory does
+   *                          not exist.
+   */
+  Runnable prepare(ImageModel model) {
     int[][][] fetchedRGB = model.saveImage(fetchImage);
-    try {
-      switch (extension) {
-        case "png":
-        case "jpg":
-        case "jpeg":
-          File fileToPass = new File(path);
-          if (fileToPass.getParentFile() != null && fileToPass.getParentFile().exists()) {
-            BufferedImage imageToSave = toBufferedImage(fetchedRGB);
-            ImageIO.write(imageToSave, extension, fileToPass);
-          }
-          break;
-        case "ppm":
-          savePPM(new FileWriter(path), fetchedRGB);
-          break;
-        default:
-          throw new RuntimeException("Invalid extension!");
-      }
-    } catch (IOException e) {
+    if (!List.of("png", "jpg", "jpeg", "ppm", "pgm", "hwc").contains(extension)) {
+      throw new RuntimeException("Invalid extension!");
+    }
+    File file = new File(path);
+    File parent = file.getParentFile();
+    boolean imageIO = extension.equals("png") || extension.equals("jpg")
+        || extension.equals("jpeg");
+    if (imageIO && (parent == null || !parent.exists())) {
+      return () -> {
+      };
+    }
+    if (parent != null && !parent.isDirectory()) {
       throw new RuntimeException("Error while saving the image!");
     }
+    return () -> {
+      try {
+        this.write(file, fetchedRGB);
+      } catch (IOException e) {
+        throw new RuntimeException("Error while saving the image!");
+      }
+    };
+  }
+
+  /**
+   * Returns the file path the image is saved to.
+   *
+   * @return the file path.
+   */
+  String getPath() {
+    return this.path;
+  }
+
+  /**
+   * Encodes the image in the format of the extension and writes it to the file.
+   *
+   * @param file       the file to write.
+   * @param fetchedRGB the image.
+   * @throws IOException if an error occurs while writing the file.
+   */
+  private void write(File file, int[][][] fetchedRGB) throws IOException {
+    switch (extension) {
+      case "png":
+      case "jpg":
+      case "jpeg":
+        ImageIO.write(RasterConversion.wrap(fetchedRGB), extension, file);
+        break;
+      case "ppm":
+        if (binary) {
+          PpmImageFormat.writeBinary(file, fetchedRGB, false);
+        } else {
+          PpmImageFormat.writePlain(file, fetchedRGB);
+        }
+        break;
+      case "pgm":
+        PpmImageFormat.writeBinary(file, fetchedRGB, true);
+        break;
+      default:
+        if (step > 0) {
+          WaveletImageFormat.write(file, fetchedRGB, step);
+        } else {
+          WaveletImageFormat.write(file, fetchedRGB);
+        }
+        break;
+    }
   }
 
-}
\ No newline at end of file
+}
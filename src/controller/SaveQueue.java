@@ -0,0 +1,171 @@
+package controller;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The SaveQueue class encodes and writes saved images in the background, so that a script goes on
+ * with its next command while an image is being written. Writes run on a small pool of daemon
+ * threads behind a bounded queue; when the queue is full the submitting thread writes the image
+ * itself, which keeps the number of images waiting to be written, and the memory they hold, small.
+ *
+ * <p>Writes to the same file are kept in order by waiting for the previous write to a file before
+ * submitting the next one. The controller places barriers where the files must be complete: before
+ * a file is loaded again, before exiting and at the end of every script. A failed write is
+ * reported with the line number of the save command it came from.
+ */
+class SaveQueue {
+
+  private static final int CAPACITY = 4;
+  private static final long KEEP_ALIVE_SECONDS = 5;
+
+  private final ThreadPoolExecutor executor;
+  private final Map<Path, Future<?>> latest;
+  private final List<PendingSave> pending;
+
+  /**
+   * Constructs an empty save queue.
+   */
+  SaveQueue() {
+    int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+    this.executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(CAPACITY), task -> {
+          Thread thread = new Thread(task, "image-save");
+          thread.setDaemon(true);
+          return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+    this.executor.allowCoreThreadTimeOut(true);
+    this.latest = new HashMap<>();
+    this.pending = new ArrayList<>();
+  }
+
+  /**
+   * Submits the write of a file, after waiting for any earlier write to the same file.
+   *
+   * @param line  the line number of the save command.
+   * @param path  the path of the file.
+   * @param write the task encoding and writing the file.
+   */
+  void submit(int line, String path, Runnable write) {
+    Path key = key(path);
+    this.await(key);
+    Future<?> future = this.executor.submit(write);
+    this.latest.put(key, future);
+    this.pending.add(new PendingSave(line, future));
+  }
+
+  /**
+   * Waits until the file at the given path, if it is being written, is complete. Failures are left
+   * to be reported by {@link #drainErrors(boolean)}.
+   *
+   * @param path the path of the file.
+   */
+  void await(String path) {
+    this.await(key(path));
+  }
+
+  /**
+   * Waits for the latest write to a file.
+   *
+   * @param key the normalized path of the file.
+   */
+  private void await(Path key) {
+    Future<?> future = this.latest.remove(key);
+    if (future != null) {
+      waitFor(future);
+    }
+  }
+
+  /**
+   * Removes the finished writes from the queue and returns the errors of those that failed, in
+   * the order they were submitted, each prefixed with the line number of its save command.
+   *
+   * @param wait true to wait for all writes to finish first, which makes this a flush barrier.
+   * @return the error messages of the failed writes.
+   */
+  List<String> drainErrors(boolean wait) {
+    List<String> errors = new ArrayList<>();
+    Iterator<PendingSave> iterator = this.pending.iterator();
+    while (iterator.hasNext()) {
+      PendingSave save = iterator.next();
+      if (!wait && !save.future.isDone()) {
+        continue;
+      }
+      String error = waitFor(save.future);
+      if (error != null) {
+        errors.add("Line " + save.line + ": " + error);
+      }
+      iterator.remove();
+    }
+    if (wait) {
+      this.latest.clear();
+    }
+    return errors;
+  }
+
+  /**
+   * Waits for a write to finish.
+   *
+   * @param future the write.
+   * @return the error message if the write failed, null otherwise.
+   */
+  private static String waitFor(Future<?> future) {
+    boolean interrupted = false;
+    try {
+      while (true) {
+        try {
+          future.get();
+          return null;
+        } catch (InterruptedException e) {
+          interrupted = true;
+        } catch (ExecutionException e) {
+          return e.getCause().getMessage();
+        }
+      }
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Normalizes a file path so that different spellings of the same file share one key.
+   *
+   * @param path the path of the file.
+   * @return the absolute, normalized path.
+   */
+  static Path key(String path) {
+    return Paths.get(path).toAbsolutePath().normalize();
+  }
+
+  /**
+   * A submitted write together with the line number of its save command.
+   */
+  private static class PendingSave {
+
+    private final int line;
+    private final Future<?> future;
+
+    /**
+     * Constructs a pending write.
+     *
+     * @param line   the line number of the save command.
+     * @param future the write.
+     */
+    PendingSave(int line, Future<?> future) {
+      this.line = line;
+      this.future = future;
+    }
+  }
+}
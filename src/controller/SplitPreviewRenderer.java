@@ -0,0 +1,97 @@
+package controller;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+/**
+ * The SplitPreviewRenderer class composes the split preview shown while the split percentage is
+ * dragged in the GUI. It keeps the original image and the image with the operation applied as
+ * packed pixels, together with a reusable preview image holding the operated columns left of the
+ * split and the original columns right of it. Moving the split only copies the columns between the
+ * old and the new split position into the raster of the preview image, so after the first frame
+ * the cost of a move depends on how far the split moved rather than on the size of the image.
+ */
+class SplitPreviewRenderer {
+
+  private final String key;
+  private final int width;
+  private final int height;
+  private final int[] original;
+  private final int[] operated;
+  private final BufferedImage image;
+  private final int[] pixels;
+  private int split;
+
+  /**
+   * Constructs a renderer for an image and the same image with the operation applied. The preview
+   * starts with the split at the left edge, showing the original image only.
+   *
+   * @param key      identifies the image, operation and parameters the renderer was built for.
+   * @param original the original image as a 3D RGB array.
+   * @param operated the image with the operation applied, of the same size.
+   * @throws IllegalArgumentException if the two images differ in size.
+   */
+  SplitPreviewRenderer(String key, int[][][] original, int[][][] operated) {
+    if (original.length != operated.length || original[0].length != operated[0].length) {
+      throw new IllegalArgumentException("Preview and image dimensions are different");
+    }
+    this.key = key;
+    this.height = original.length;
+    this.width = original[0].length;
+    this.original = pack(original, this.height, this.width);
+    this.operated = pack(operated, this.height, this.width);
+    this.image = new BufferedImage(this.width, this.height, BufferedImage.TYPE_INT_RGB);
+    this.pixels = ((DataBufferInt) this.image.getRaster().getDataBuffer()).getData();
+    System.arraycopy(this.original, 0, this.pixels, 0, this.pixels.length);
+  }
+
+  /**
+   * Packs a 3D RGB array into one int per pixel, row by row.
+   *
+   * @param rgb    the image.
+   * @param height the height of the image.
+   * @param width  the width of the image.
+   * @return the packed pixels.
+   */
+  private static int[] pack(int[][][] rgb, int height, int width) {
+    int[] packed = new int[height * width];
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        int[] pixel = rgb[y][x];
+        packed[y * width + x] = pixel[0] << 16 | pixel[1] << 8 | pixel[2];
+      }
+    }
+    return packed;
+  }
+
+  /**
+   * Returns whether the renderer was built for the given image, operation and parameters.
+   *
+   * @param key the key of the preview being requested.
+   * @return true if the renderer can be reused for it.
+   */
+  boolean isFor(String key) {
+    return this.key.equals(key);
+  }
+
+  /**
+   * Moves the split to the given percentage of the width and returns the preview image. The split
+   * column is computed as in the split preview operation of the model. The returned image is reused
+   * by later calls.
+   *
+   * @param percentage the percentage of the width showing the operated image.
+   * @return the preview image.
+   */
+  BufferedImage render(double percentage) {
+    int target = (int) ((this.width * percentage) / 100);
+    int from = Math.min(this.split, target);
+    int to = Math.max(this.split, target);
+    int[] source = target > this.split ? this.operated : this.original;
+    for (int y = 0; y < this.height; y++) {
+      int offset = y * this.width + from;
+      System.arraycopy(source, offset, this.pixels, offset, to - from);
+    }
+    this.split = target;
+    return this.image;
+  }
+}
@@ -0,0 +1,654 @@
+package controller;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import utils.HaarWavelet;
+import utils.MyUtils;
+
+/**
+ * The WaveletImageFormat class reads and writes the native ".hwc" image format. The image is cut
+ * into square tiles which are transformed independently. By default the reversible integer Haar
+ * transform is used, whose coefficients are integers already, so decoding restores the image
+ * exactly. Files can also be written lossily with the orthonormal Haar transform, the coefficients
+ * being divided by a quantisation step and rounded; the larger the step, the more coefficients
+ * round to zero and the smaller the file. For every tile and channel a significance bitmap marks
+ * the non-zero coefficients and only those are written, as zig-zag variable length integers.
+ *
+ * <p>Coefficients are grouped into bands, coarse to fine: band 0 holds the average of every tile,
+ * band {@code k} holds the coefficients inside the top-left {@code 2^k x 2^k} block of every tile
+ * that were not part of band {@code k - 1}. Every band is a separate DEFLATE section of the file,
+ * holding the band of every tile in order, and a table after the header gives the offset of each
+ * section. A reader therefore reads the coarse bands of a tile from their own sections without
+ * touching the fine ones, which is how reduced resolution images are loaded.
+ *
+ * <p>Tiles are encoded and decoded in batches of {@value #BATCH_TILES}, each batch being
+ * transformed in parallel, so only the coefficients of one batch are held at a time. While
+ * writing, the finest band, which holds three quarters of the coefficients, is compressed straight
+ * into the file and the coarser sections are kept compressed in memory until they are appended
+ * after it.
+ */
+class WaveletImageFormat {
+
+  private static final byte[] MAGIC = {'H', 'W', 'C', '2'};
+  private static final int HEADER_BYTES = MAGIC.length + 14;
+  private static final int TILE_LOG = 6;
+  private static final int TRANSFORM_HAAR = 0;
+  private static final int TRANSFORM_INTEGER = 1;
+  private static final int BATCH_TILES = 64;
+  private static final int PREVIEW_LEVELS = 3;
+
+  /**
+   * Holds the header fields of a wavelet image file.
+   */
+  private static class Header {
+
+    private final int width;
+    private final int height;
+    private final int tileLog;
+    private final int transform;
+    private final float step;
+
+    /**
+     * Constructs a header with the given fields.
+     *
+     * @param width     the width of the image.
+     * @param height    the height of the image.
+     * @param tileLog   the base two logarithm of the tile side.
+     * @param transform the transform used for the coefficients.
+     * @param step      the quantisation step of the coefficients.
+     */
+    private Header(int width, int height, int tileLog, int transform, float step) {
+      this.width = width;
+      this.height = height;
+      this.tileLog = tileLog;
+      this.transform = transform;
+      this.step = step;
+    }
+
+    /**
+     * Returns the side of a tile.
+     *
+     * @return the tile side in pixels.
+     */
+    private int tileSize() {
+      return 1 << tileLog;
+    }
+
+    /**
+     * Returns the number of tile columns.
+     *
+     * @return the number of tiles across the image.
+     */
+    private int tilesAcross() {
+      return (width + tileSize() - 1) / tileSize();
+    }
+
+    /**
+     * Returns the total number of tiles.
+     *
+     * @return the number of tiles covering the image.
+     */
+    private int tileCount() {
+      return tilesAcross() * ((height + tileSize() - 1) / tileSize());
+    }
+  }
+
+  /**
+   * Reads a section of a file through positional reads of its channel, so that several sections
+   * of the same file can be read side by side.
+   */
+  private static class SectionInputStream extends InputStream {
+
+    private final FileChannel channel;
+    private long position;
+
+    /**
+     * Constructs a stream reading the channel from the given position.
+     *
+     * @param channel  the channel of the file.
+     * @param position the position of the section in the file.
+     */
+    private SectionInputStream(FileChannel channel, long position) {
+      this.channel = channel;
+      this.position = position;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] b = new byte[1];
+      return this.read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      int read = this.channel.read(ByteBuffer.wrap(b, off, len), this.position);
+      if (read > 0) {
+        this.position += read;
+      }
+      return read;
+    }
+  }
+
+  /**
+   * Computes the offsets, inside a tile, of the coefficients belonging to every band.
+   *
+   * @param tileLog the base two logarithm of the tile side.
+   * @return the offsets of every band, indexed by band.
+   */
+  private static int[][] bandOffsets(int tileLog) {
+    int tileSize = 1 << tileLog;
+    int[][] bands = new int[tileLog + 1][];
+    bands[0] = new int[]{0};
+    for (int band = 1; band <= tileLog; band++) {
+      int outer = 1 << band;
+      int inner = outer / 2;
+      int[] offsets = new int[outer * outer - inner * inner];
+      int index = 0;
+      for (int r = 0; r < outer; r++) {
+        for (int c = 0; c < outer; c++) {
+          if (r >= inner || c >= inner) {
+            offsets[index++] = r * tileSize + c;
+          }
+        }
+      }
+      bands[band] = offsets;
+    }
+    return bands;
+  }
+
+  /**
+   * Transforms one tile of the image and stores its quantised coefficients. Pixels outside the
+   * image are filled by repeating the last row and column, which keeps the padding smooth.
+   *
+   * @param rgb          the image to encode.
+   * @param header       the header describing the file.
+   * @param tile         the index of the tile.
+   * @param coefficients receives the quantised coefficients of the tile per channel.
+   */
+  private static void encodeTile(int[][][] rgb, Header header, int tile, int[][] coefficients) {
+    int tileSize = header.tileSize();
+    int top = (tile / header.tilesAcross()) * tileSize;
+    int left = (tile % header.tilesAcross()) * tileSize;
+    if (header.transform == TRANSFORM_INTEGER) {
+      int[][] block = new int[tileSize][tileSize];
+      for (int k = 0; k < 3; k++) {
+        for (int r = 0; r < tileSize; r++) {
+          int[][] row = rgb[Math.min(top + r, header.height - 1)];
+          for (int c = 0; c < tileSize; c++) {
+            block[r][c] = row[Math.min(left + c, header.width - 1)][k];
+          }
+        }
+        HaarWavelet.forwardInteger(block, tileSize);
+        for (int r = 0; r < tileSize; r++) {
+          System.arraycopy(block[r], 0, coefficients[k], r * tileSize, tileSize);
+        }
+      }
+      return;
+    }
+    double[][] block = new double[tileSize][tileSize];
+    for (int k = 0; k < 3; k++) {
+      for (int r = 0; r < tileSize; r++) {
+        int[][] row = rgb[Math.min(top + r, header.height - 1)];
+        for (int c = 0; c < tileSize; c++) {
+          block[r][c] = row[Math.min(left + c, header.width - 1)][k];
+        }
+      }
+      HaarWavelet.forward(block, tileSize);
+      for (int r = 0; r < tileSize; r++) {
+        for (int c = 0; c < tileSize; c++) {
+          coefficients[k][r * tileSize + c] = (int) Math.round(block[r][c] / header.step);
+        }
+      }
+    }
+  }
+
+  /**
+   * Inverts one tile of the image from its quantised coefficients and writes the pixels that lie
+   * inside the image. When fine levels are skipped only the coarse coefficients of the tile are
+   * used and the tile is written at the reduced resolution.
+   *
+   * @param rgb          the image being decoded, at the reduced resolution.
+   * @param header       the header describing the file.
+   * @param tile         the index of the tile.
+   * @param coefficients the quantised coefficients of the tile per channel.
+   * @param skipLevels   the number of fine levels that are not reconstructed.
+   */
+  private static void decodeTile(int[][][] rgb, Header header, int tile, int[][] coefficients,
+      int skipLevels) {
+    int tileSize = header.tileSize();
+    int blockSize = tileSize >> skipLevels;
+    int top = (tile / header.tilesAcross()) * blockSize;
+    int left = (tile % header.tilesAcross()) * blockSize;
+    int rows = Math.min(blockSize, rgb.length - top);
+    int cols = Math.min(blockSize, rgb[0].length - left);
+    if (header.transform == TRANSFORM_INTEGER) {
+      int[][] block = new int[blockSize][blockSize];
+      for (int k = 0; k < 3; k++) {
+        for (int r = 0; r < blockSize; r++) {
+          System.arraycopy(coefficients[k], r * tileSize, block[r], 0, blockSize);
+        }
+        HaarWavelet.inverseInteger(block, tileSize, skipLevels);
+        for (int r = 0; r < rows; r++) {
+          for (int c = 0; c < cols; c++) {
+            rgb[top + r][left + c][k] = MyUtils.clamp(block[r][c]);
+          }
+        }
+      }
+      return;
+    }
+    double[][] block = new double[blockSize][blockSize];
+    for (int k = 0; k < 3; k++) {
+      for (int r = 0; r < blockSize; r++) {
+        for (int c = 0; c < blockSize; c++) {
+          block[r][c] = coefficients[k][r * tileSize + c] * (double) header.step;
+        }
+      }
+      HaarWavelet.inverse(block, tileSize, skipLevels);
+      for (int r = 0; r < rows; r++) {
+        for (int c = 0; c < cols; c++) {
+          rgb[top + r][left + c][k] = MyUtils.clamp((int) Math.round(block[r][c]));
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes a value as a zig-zag encoded variable length integer.
+   *
+   * @param out   the stream to write to.
+   * @param value the value to write.
+   * @throws IOException if the stream cannot be written.
+   */
+  private static void writeVarInt(OutputStream out, int value) throws IOException {
+    int zigZag = (value << 1) ^ (value >> 31);
+    while ((zigZag & ~0x7F) != 0) {
+      out.write((zigZag & 0x7F) | 0x80);
+      zigZag >>>= 7;
+    }
+    out.write(zigZag);
+  }
+
+  /**
+   * Reads a zig-zag encoded variable length integer.
+   *
+   * @param in the stream to read from.
+   * @return the decoded value.
+   * @throws IOException if the stream cannot be read or ends early.
+   */
+  private static int readVarInt(InputStream in) throws IOException {
+    int zigZag = 0;
+    for (int shift = 0; shift < 35; shift += 7) {
+      int b = in.read();
+      if (b < 0) {
+        throw new EOFException();
+      }
+      zigZag |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return (zigZag >>> 1) ^ -(zigZag & 1);
+      }
+    }
+    throw new IllegalArgumentException("Invalid HWC file: malformed coefficient");
+  }
+
+  /**
+   * Writes the coefficients of one band of a tile, for each channel a significance bitmap
+   * followed by the non-zero values.
+   *
+   * @param out          the stream of the band to write to.
+   * @param offsets      the offsets of the band inside a tile.
+   * @param coefficients the quantised coefficients of the tile per channel.
+   * @throws IOException if the stream cannot be written.
+   */
+  private static void writeBand(OutputStream out, int[] offsets, int[][] coefficients)
+      throws IOException {
+    byte[] bitmap = new byte[(offsets.length + 7) / 8];
+    for (int k = 0; k < 3; k++) {
+      Arrays.fill(bitmap, (byte) 0);
+      for (int i = 0; i < offsets.length; i++) {
+        if (coefficients[k][offsets[i]] != 0) {
+          bitmap[i >> 3] |= (byte) (1 << (i & 7));
+        }
+      }
+      out.write(bitmap);
+      for (int offset : offsets) {
+        int value = coefficients[k][offset];
+        if (value != 0) {
+          writeVarInt(out, value);
+        }
+      }
+    }
+  }
+
+  /**
+   * Reads the coefficients of one band of a tile. Coefficients not marked in the bitmap are set
+   * to zero.
+   *
+   * @param in           the stream of the band to read from.
+   * @param offsets      the offsets of the band inside a tile.
+   * @param coefficients the quantised coefficients of the tile per channel, filled in by this
+   *                     method.
+   * @throws IOException if the stream cannot be read or ends early.
+   */
+  private static void readBand(DataInputStream in, int[] offsets, int[][] coefficients)
+      throws IOException {
+    byte[] bitmap = new byte[(offsets.length + 7) / 8];
+    for (int k = 0; k < 3; k++) {
+      in.readFully(bitmap);
+      for (int i = 0; i < offsets.length; i++) {
+        coefficients[k][offsets[i]] =
+            (bitmap[i >> 3] & (1 << (i & 7))) != 0 ? readVarInt(in) : 0;
+      }
+    }
+  }
+
+  /**
+   * Reads exactly as many bytes as the buffer has room for, from the given position of a file.
+   *
+   * @param channel  the channel of the file.
+   * @param buffer   the buffer to fill.
+   * @param position the position to read from.
+   * @throws IOException if the file cannot be read or ends early.
+   */
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      int read = channel.read(buffer, position + buffer.position());
+      if (read < 0) {
+        throw new EOFException();
+      }
+    }
+    buffer.flip();
+  }
+
+  /**
+   * Writes all remaining bytes of a buffer to a channel at its current position.
+   *
+   * @param channel the channel.
+   * @param buffer  the bytes to write.
+   * @throws IOException if the file cannot be written.
+   */
+  private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  /**
+   * Reads and validates the header of a wavelet image file.
+   *
+   * @param channel the channel of the file.
+   * @return the header.
+   * @throws IOException              if the file cannot be read.
+   * @throws IllegalArgumentException if the file is not a valid wavelet image file.
+   */
+  private static Header readHeader(FileChannel channel) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES);
+    readFully(channel, buffer, 0);
+    byte[] magic = new byte[MAGIC.length];
+    buffer.get(magic);
+    if (!Arrays.equals(magic, MAGIC)) {
+      throw new IllegalArgumentException("Invalid HWC file: file should begin with HWC2");
+    }
+    int width = buffer.getInt();
+    int height = buffer.getInt();
+    int tileLog = buffer.get() & 0xFF;
+    int transform = buffer.get() & 0xFF;
+    float step = buffer.getFloat();
+    if (width <= 0 || height <= 0 || tileLog > 12
+        || (transform != TRANSFORM_HAAR && transform != TRANSFORM_INTEGER) || !(step > 0)) {
+      throw new IllegalArgumentException("Invalid HWC file: unsupported header");
+    }
+    return new Header(width, height, tileLog, transform, step);
+  }
+
+  /**
+   * Reads the table holding the position of the section of every band.
+   *
+   * @param channel the channel of the file.
+   * @param header  the header describing the file.
+   * @return the position of every section, indexed by band.
+   * @throws IOException              if the file cannot be read.
+   * @throws IllegalArgumentException if a position lies outside the file.
+   */
+  private static long[] readSections(FileChannel channel, Header header) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(8 * (header.tileLog + 1));
+    readFully(channel, buffer, HEADER_BYTES);
+    long[] sections = new long[header.tileLog + 1];
+    for (int band = 0; band <= header.tileLog; band++) {
+      sections[band] = buffer.getLong();
+      if (sections[band] < HEADER_BYTES + buffer.capacity() || sections[band] >= channel.size()) {
+        throw new IllegalArgumentException("Invalid HWC file: unsupported header");
+      }
+    }
+    return sections;
+  }
+
+  /**
+   * Writes an image to a file in the wavelet image format losslessly, with the reversible integer
+   * transform, so that the image is restored exactly when read.
+   *
+   * @param file the file to write.
+   * @param rgb  the 3D RGB matrix of the image.
+   * @throws IOException if the file cannot be written.
+   */
+  static void write(File file, int[][][] rgb) throws IOException {
+    write(file, rgb, new Header(rgb[0].length, rgb.length, TILE_LOG, TRANSFORM_INTEGER, 1));
+  }
+
+  /**
+   * Writes an image to a file in the wavelet image format lossily, with the Haar coefficients
+   * divided by the given quantisation step and rounded to integers.
+   *
+   * @param file the file to write.
+   * @param rgb  the 3D RGB matrix of the image.
+   * @param step the quantisation step, greater than zero.
+   * @throws IOException if the file cannot be written.
+   */
+  static void write(File file, int[][][] rgb, float step) throws IOException {
+    write(file, rgb, new Header(rgb[0].length, rgb.length, TILE_LOG, TRANSFORM_HAAR, step));
+  }
+
+  /**
+   * Writes an image to a file with the given header, a batch of tiles at a time. Every section
+   * has its own deflater, and all of them are ended however the write finishes. If the write
+   * fails, the partly written file is deleted rather than left behind with an empty header.
+   *
+   * @param file   the file to write.
+   * @param rgb    the 3D RGB matrix of the image.
+   * @param header the header describing the file.
+   * @throws IOException if the file cannot be written.
+   */
+  private static void write(File file, int[][][] rgb, Header header) throws IOException {
+    int[][] bands = bandOffsets(header.tileLog);
+    int finest = header.tileLog;
+    int tileArea = header.tileSize() * header.tileSize();
+    long[] sections = new long[bands.length];
+    ByteArrayOutputStream[] coarse = new ByteArrayOutputStream[finest];
+    OutputStream[] streams = new OutputStream[bands.length];
+    Deflater[] deflaters = new Deflater[bands.length];
+    for (int band = 0; band <= finest; band++) {
+      deflaters[band] = new Deflater();
+    }
+
+    boolean complete = false;
+    try {
+      try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE,
+          StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+        sections[finest] = HEADER_BYTES + 8L * bands.length;
+        channel.position(sections[finest]);
+        DeflaterOutputStream finestSection =
+            new DeflaterOutputStream(Channels.newOutputStream(channel), deflaters[finest]);
+        streams[finest] = new BufferedOutputStream(finestSection, 1 << 16);
+        for (int band = 0; band < finest; band++) {
+          coarse[band] = new ByteArrayOutputStream();
+          streams[band] = new BufferedOutputStream(
+              new DeflaterOutputStream(coarse[band], deflaters[band]));
+        }
+
+        int[][][] batch = new int[Math.min(BATCH_TILES, header.tileCount())][3][tileArea];
+        for (int first = 0; first < header.tileCount(); first += batch.length) {
+          int start = first;
+          int count = Math.min(batch.length, header.tileCount() - first);
+          IntStream.range(0, count).parallel()
+              .forEach(t -> encodeTile(rgb, header, start + t, batch[t]));
+          for (int t = 0; t < count; t++) {
+            for (int band = 0; band <= finest; band++) {
+              writeBand(streams[band], bands[band], batch[t]);
+            }
+          }
+        }
+
+        streams[finest].flush();
+        finestSection.finish();
+        for (int band = 0; band < finest; band++) {
+          streams[band].close();
+          sections[band] = channel.position();
+          writeFully(channel, ByteBuffer.wrap(coarse[band].toByteArray()));
+        }
+
+        ByteBuffer table = ByteBuffer.allocate(HEADER_BYTES + 8 * bands.length);
+        table.put(MAGIC).putInt(header.width).putInt(header.height).put((byte) header.tileLog)
+            .put((byte) header.transform).putFloat(header.step);
+        for (long section : sections) {
+          table.putLong(section);
+        }
+        table.flip();
+        channel.position(0);
+        writeFully(channel, table);
+      }
+      complete = true;
+    } finally {
+      for (Deflater deflater : deflaters) {
+        deflater.end();
+      }
+      if (!complete) {
+        // the failure being thrown is the error worth reporting, not a failed clean up
+        file.delete();
+      }
+    }
+  }
+
+  /**
+   * Decodes the image, or a reduced resolution version of it, a batch of tiles at a time. Only
+   * the sections of the bands needed for the resolution are read.
+   *
+   * @param channel    the channel of the file.
+   * @param header     the header describing the file.
+   * @param sections   the position of the section of every band.
+   * @param skipLevels the number of fine levels that are not reconstructed.
+   * @return the 3D RGB matrix of the reconstructed image.
+   * @throws IOException if the file cannot be read or ends early.
+   */
+  private static int[][][] decode(FileChannel channel, Header header, long[] sections,
+      int skipLevels) throws IOException {
+    int[][] bands = bandOffsets(header.tileLog);
+    int lastBand = header.tileLog - skipLevels;
+    int factor = 1 << skipLevels;
+    int[][][] rgb = new int[(header.height + factor - 1) / factor]
+        [(header.width + factor - 1) / factor][3];
+    DataInputStream[] streams = new DataInputStream[lastBand + 1];
+    try {
+      for (int band = 0; band <= lastBand; band++) {
+        streams[band] = new DataInputStream(new BufferedInputStream(new InflaterInputStream(
+            new BufferedInputStream(new SectionInputStream(channel, sections[band]), 1 << 16)),
+            1 << 16));
+      }
+      int tileArea = header.tileSize() * header.tileSize();
+      int[][][] batch = new int[Math.min(BATCH_TILES, header.tileCount())][3][tileArea];
+      for (int first = 0; first < header.tileCount(); first += batch.length) {
+        int start = first;
+        int count = Math.min(batch.length, header.tileCount() - first);
+        for (int t = 0; t < count; t++) {
+          for (int band = 0; band <= lastBand; band++) {
+            readBand(streams[band], bands[band], batch[t]);
+          }
+        }
+        IntStream.range(0, count).parallel()
+            .forEach(t -> decodeTile(rgb, header, start + t, batch[t], skipLevels));
+      }
+    } finally {
+      for (DataInputStream stream : streams) {
+        if (stream != null) {
+          stream.close();
+        }
+      }
+    }
+    return rgb;
+  }
+
+  /**
+   * Reads an image from a file in the wavelet image format.
+   *
+   * @param file the file to read.
+   * @return the 3D RGB matrix of the image.
+   * @throws IOException              if the file cannot be read.
+   * @throws IllegalArgumentException if the file is not a valid wavelet image file.
+   */
+  static int[][][] read(File file) throws IOException {
+    return read(file, 1);
+  }
+
+  /**
+   * Reads an image from a file in the wavelet image format at a reduced resolution. Only the
+   * sections of the coarse bands needed for that resolution are read from the file.
+   *
+   * @param file  the file to read.
+   * @param scale the factor by which the image is smaller, a power of two.
+   * @return the 3D RGB matrix of the reduced image.
+   * @throws IOException              if the file cannot be read.
+   * @throws IllegalArgumentException if the file is not a valid wavelet image file.
+   */
+  static int[][][] read(File file, int scale) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      Header header = readHeader(channel);
+      long[] sections = readSections(channel, header);
+      int skipLevels = Math.min(Integer.numberOfTrailingZeros(scale), header.tileLog);
+      return decode(channel, header, sections, skipLevels);
+    }
+  }
+
+  /**
+   * Reads an image from a file in the wavelet image format, reporting reduced resolution versions
+   * of it first. The image at an eighth, a quarter and a half of the resolution is decoded from
+   * the coarse sections of the file and handed to the preview consumer, so a caller can show a
+   * coarse image long before the whole file is read. The three previews together read about a
+   * third as many coefficients as the full image, so they add little to the time of the load.
+   *
+   * @param file    the file to read.
+   * @param preview the consumer receiving each reduced resolution image, coarsest first.
+   * @return the 3D RGB matrix of the full image.
+   * @throws IOException              if the file cannot be read.
+   * @throws IllegalArgumentException if the file is not a valid wavelet image file.
+   */
+  static int[][][] readProgressive(File file, Consumer<int[][][]> preview) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      Header header = readHeader(channel);
+      long[] sections = readSections(channel, header);
+      for (int skipLevels = Math.min(PREVIEW_LEVELS, header.tileLog); skipLevels > 0;
+          skipLevels--) {
+        preview.accept(decode(channel, header, sections, skipLevels));
+      }
+      return decode(channel, header, sections, 0);
+    }
+  }
+}
@@ -0,0 +1,206 @@
+package model;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.IntStream;
+import utils.HaarWavelet;
+
+/**
+ * This class performs Haar wavelet compression on independent square blocks of the image instead
+ * of on the whole padded image. Each block is transformed, thresholded and reconstructed on its
+ * own, so only one block per worker thread is held as doubles at any time and the blocks are
+ * processed in parallel. The threshold is either chosen for every block and channel from the
+ * block's own coefficients, or estimated once per channel from the coefficients of all blocks.
+ * Blocks that run past the edge of the image are padded with zeros, as the whole image is in
+ * {@link ImageCompression}.
+ *
+ * <p>The global estimate is taken from a histogram of coefficient magnitudes per channel with a
+ * fixed number of bins, each worker filling its own and the histograms being merged, so its memory
+ * does not grow with the image. The bins are read from the bits of the magnitude, 256 to an
+ * octave, which keeps the threshold within 0.4% of the exact percentile of the magnitudes.
+ */
+class BlockImageCompression extends AbstractSpecificOps {
+
+  private static final int MANTISSA_SHIFT = 44;
+  private static final long SMALLEST_BITS = Double.doubleToRawLongBits(0x1p-10);
+  private static final int BINS =
+      (int) ((Double.doubleToRawLongBits(0x1p21) - SMALLEST_BITS) >>> MANTISSA_SHIFT) + 1;
+
+  private final int percentage;
+  private final int blockSize;
+  private final boolean globalThreshold;
+
+  /**
+   * Constructs a BlockImageCompression object.
+   *
+   * @param inputRGB        The 3D array representing the input image in RGB format.
+   * @param percentage      The percentage of compression to apply.
+   * @param blockSize       The side of the blocks, a power of two.
+   * @param globalThreshold True to use one threshold per channel for the whole image, false to
+   *                        choose a threshold for each block.
+   */
+  BlockImageCompression(int[][][] inputRGB, int percentage, int blockSize,
+      boolean globalThreshold) {
+    super(inputRGB);
+    this.percentage = percentage;
+    this.blockSize = blockSize;
+    this.globalThreshold = globalThreshold;
+  }
+
+  /**
+   * Copies one channel of a block of the image into the scratch matrix and applies the Haar
+   * wavelet transformation to it.
+   *
+   * @param block   the scratch matrix receiving the transformed block.
+   * @param top     the first row of the block in the image.
+   * @param left    the first column of the block in the image.
+   * @param channel the color channel to copy.
+   */
+  private void transformBlock(double[][] block, int top, int left, int channel) {
+    int height = this.inputRGB.length;
+    int width = this.inputRGB[0].length;
+    for (int i = 0; i < this.blockSize; i++) {
+      for (int j = 0; j < this.blockSize; j++) {
+        int row = top + i;
+        int col = left + j;
+        block[i][j] = row < height && col < width ? this.inputRGB[row][col][channel] : 0;
+      }
+    }
+    HaarWavelet.forward(block, this.blockSize);
+  }
+
+  /**
+   * Estimates one threshold per channel such that the given percentage of the coefficients of all
+   * blocks lie below it. The blocks are transformed in parallel and only a histogram of the
+   * coefficient magnitudes of every channel is kept.
+   *
+   * @param blocksAcross the number of blocks in a row of blocks.
+   * @param blockCount   the total number of blocks.
+   * @return the threshold of each channel.
+   */
+  private double[] globalThresholds(int blocksAcross, int blockCount) {
+    if (this.percentage == 100) {
+      return new double[]{Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE};
+    }
+    long[][] histograms = IntStream.range(0, blockCount).parallel().collect(
+        () -> new long[3][BINS], (histogram, index) -> {
+          double[][] block = new double[this.blockSize][this.blockSize];
+          for (int k = 0; k < 3; k++) {
+            this.transformBlock(block, (index / blocksAcross) * this.blockSize,
+                (index % blocksAcross) * this.blockSize, k);
+            for (double[] row : block) {
+              for (double value : row) {
+                histogram[k][bin(Math.abs(value))]++;
+              }
+            }
+          }
+        }, (first, second) -> {
+          for (int k = 0; k < 3; k++) {
+            for (int b = 0; b < BINS; b++) {
+              first[k][b] += second[k][b];
+            }
+          }
+        });
+    long total = (long) blockCount * this.blockSize * this.blockSize;
+    long target = Math.round(total * (this.percentage / 100.0));
+    double[] thresholds = new double[3];
+    for (int k = 0; k < 3; k++) {
+      long count = 0;
+      int b = 0;
+      while (b < BINS - 1 && count + histograms[k][b] <= target) {
+        count += histograms[k][b++];
+      }
+      thresholds[k] = lowerEdge(b);
+    }
+    return thresholds;
+  }
+
+  /**
+   * Returns the histogram bin of a coefficient magnitude. Magnitudes below 2^-10 share the first
+   * bin and magnitudes beyond the range of the histogram share the last one.
+   *
+   * @param magnitude the magnitude, not negative.
+   * @return the index of its bin.
+   */
+  private static int bin(double magnitude) {
+    long bits = Double.doubleToRawLongBits(magnitude) - SMALLEST_BITS;
+    if (bits < 0) {
+      return 0;
+    }
+    return (int) Math.min(BINS - 1, (bits >>> MANTISSA_SHIFT) + 1);
+  }
+
+  /**
+   * Returns the smallest magnitude falling in a histogram bin.
+   *
+   * @param bin the index of the bin.
+   * @return the lower edge of the bin, 0 for the first bin.
+   */
+  private static double lowerEdge(int bin) {
+    if (bin == 0) {
+      return 0;
+    }
+    return Double.longBitsToDouble(SMALLEST_BITS + ((long) (bin - 1) << MANTISSA_SHIFT));
+  }
+
+  /**
+   * Compresses one block of the image in every channel and writes the reconstructed pixels that
+   * lie inside the image to the output.
+   *
+   * @param outputRGB  the compressed image being written.
+   * @param top        the first row of the block in the image.
+   * @param left       the first column of the block in the image.
+   * @param thresholds the threshold of each channel, or null to choose them from the block.
+   */
+  private void compressBlock(int[][][] outputRGB, int top, int left, double[] thresholds) {
+    double[][] block = new double[this.blockSize][this.blockSize];
+    int rows = Math.min(this.blockSize, outputRGB.length - top);
+    int cols = Math.min(this.blockSize, outputRGB[0].length - left);
+    for (int k = 0; k < 3; k++) {
+      this.transformBlock(block, top, left, k);
+      double threshold;
+      if (thresholds != null) {
+        threshold = thresholds[k];
+      } else {
+        Set<Double> distinctValues = new HashSet<>();
+        if (this.percentage != 100) {
+          ImageCompression.collectDistinctValues(block, this.blockSize, distinctValues);
+        }
+        threshold = ImageCompression.threshold(distinctValues, this.percentage);
+      }
+      ImageCompression.applyThreshold(block, this.blockSize, threshold);
+      HaarWavelet.inverse(block, this.blockSize);
+      for (int i = 0; i < rows; i++) {
+        for (int j = 0; j < cols; j++) {
+          outputRGB[top + i][left + j][k] = (int) Math.round(block[i][j]);
+        }
+      }
+    }
+  }
+
+  /**
+   * Compresses the input image block by block. The blocks are independent, so they are processed
+   * in parallel.
+   *
+   * @return The compressed image as a 3D array.
+   */
+  @Override
+  int[][][] getMatrix() {
+    if (this.percentage < 1) {
+      return this.inputRGB;
+    }
+    int height = this.inputRGB.length;
+    int width = this.inputRGB[0].length;
+    int blocksAcross = (width + this.blockSize - 1) / this.blockSize;
+    int blocksDown = (height + this.blockSize - 1) / this.blockSize;
+    int blockCount = blocksAcross * blocksDown;
+    double[] thresholds = this.globalThreshold
+        ? this.globalThresholds(blocksAcross, blockCount) : null;
+
+    int[][][] outputRGB = new int[height][width][3];
+    IntStream.range(0, blockCount).parallel().forEach(index -> this.compressBlock(outputRGB,
+        (index / blocksAcross) * this.blockSize, (index % blocksAcross) * this.blockSize,
+        thresholds));
+    return outputRGB;
+  }
+}
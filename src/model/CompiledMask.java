@@ -0,0 +1,147 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * The CompiledMask class is the compact form of a mask image used by masked operations. A mask
+ * selects the pixels that are black in all three channels; instead of the full RGB matrix of the
+ * mask, only the runs (spans) of selected pixels of every row are kept. The spans of all rows are
+ * stored one after the other in a single array as pairs of a start column and an end column
+ * (exclusive), and a second array holds where the spans of every row begin, so a mask costs two
+ * ints per span plus one per row and the masked pixels can be visited run by run without testing
+ * every pixel.
+ */
+class CompiledMask {
+
+  private final int height;
+  private final int width;
+  private final int[] rowOffsets;
+  private final int[] spans;
+
+  /**
+   * Compiles the given mask image.
+   *
+   * @param mask the mask image, whose black pixels are the selected ones.
+   */
+  CompiledMask(ImageData mask) {
+    this.height = mask.getHeight();
+    this.width = mask.getWidth();
+    this.rowOffsets = new int[this.height + 1];
+    int[] buffer = new int[16];
+    int count = 0;
+    int[][][] rgb = mask.getRgb();
+    for (int i = 0; i < this.height; i++) {
+      int[][] row = rgb[i];
+      int j = 0;
+      while (j < this.width) {
+        if (isSelected(row[j])) {
+          int start = j;
+          while (j < this.width && isSelected(row[j])) {
+            j++;
+          }
+          if (count + 2 > buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+          }
+          buffer[count++] = start;
+          buffer[count++] = j;
+        } else {
+          j++;
+        }
+      }
+      this.rowOffsets[i + 1] = count;
+    }
+    this.spans = Arrays.copyOf(buffer, count);
+  }
+
+  /**
+   * Returns whether a mask pixel selects its image pixel, which is the case for black pixels.
+   *
+   * @param pixel the RGB values of the mask pixel.
+   * @return true if the pixel is selected.
+   */
+  private static boolean isSelected(int[] pixel) {
+    return pixel[0] == 0 && pixel[1] == 0 && pixel[2] == 0;
+  }
+
+  /**
+   * Returns the height of the mask.
+   *
+   * @return the number of rows.
+   */
+  int getHeight() {
+    return this.height;
+  }
+
+  /**
+   * Returns the width of the mask.
+   *
+   * @return the number of columns.
+   */
+  int getWidth() {
+    return this.width;
+  }
+
+  /**
+   * Returns whether a row has no selected pixels.
+   *
+   * @param row the row.
+   * @return true if the row has no spans.
+   */
+  boolean isEmpty(int row) {
+    return this.rowOffsets[row] == this.rowOffsets[row + 1];
+  }
+
+  /**
+   * Returns the index of the first span of a row. The spans of the row run up to the first span of
+   * the next row.
+   *
+   * @param row the row, or the height of the mask for the end of the last row.
+   * @return the index of the span.
+   */
+  int firstSpan(int row) {
+    return this.rowOffsets[row] / 2;
+  }
+
+  /**
+   * Returns the first column of a span.
+   *
+   * @param span the index of the span.
+   * @return the first selected column.
+   */
+  int spanStart(int span) {
+    return this.spans[2 * span];
+  }
+
+  /**
+   * Returns the column after the last one of a span.
+   *
+   * @param span the index of the span.
+   * @return the end column, exclusive.
+   */
+  int spanEnd(int span) {
+    return this.spans[2 * span + 1];
+  }
+
+  /**
+   * Returns whether the pixel at the given position is selected, searching the spans of its row.
+   *
+   * @param row    the row of the pixel.
+   * @param column the column of the pixel.
+   * @return true if the pixel is selected.
+   */
+  boolean contains(int row, int column) {
+    int low = this.firstSpan(row);
+    int high = this.firstSpan(row + 1) - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      if (column < this.spanStart(middle)) {
+        high = middle - 1;
+      } else if (column >= this.spanEnd(middle)) {
+        low = middle + 1;
+      } else {
+        return true;
+      }
+    }
+    return false;
+  }
+}
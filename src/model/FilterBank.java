@@ -0,0 +1,142 @@
+package model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The FilterBank class holds the weights of a resampling filter along one axis, from a source size
+ * to a target size. For every target position it stores the source positions the filter reaches
+ * and their normalized weights, so resampling a row or a column is a plain weighted sum. Source
+ * positions outside the image are clamped to its edge.
+ *
+ * <p>Two filters are supported: "bicubic", the Catmull-Rom cubic with a radius of 2, and
+ * "lanczos", the Lanczos windowed sinc with a radius of 3. When downsampling the filter is
+ * stretched by the reduction factor so that it averages all the source pixels it covers. Banks
+ * depend only on the filter and the two sizes, so the most recently used ones are cached and
+ * shared between images of the same size.
+ */
+class FilterBank {
+
+  private static final int CACHE_SIZE = 32;
+  private static final Map<String, FilterBank> CACHE =
+      new LinkedHashMap<String, FilterBank>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, FilterBank> eldest) {
+          return size() > CACHE_SIZE;
+        }
+      };
+
+  private final int taps;
+  private final int[] indices;
+  private final double[] weights;
+
+  /**
+   * Computes the bank of a filter between two sizes.
+   *
+   * @param filter     the name of the filter, "bicubic" or "lanczos".
+   * @param sourceSize the number of source positions.
+   * @param targetSize the number of target positions.
+   */
+  private FilterBank(String filter, int sourceSize, int targetSize) {
+    double radius = filter.equals("bicubic") ? 2 : 3;
+    double ratio = (double) sourceSize / targetSize;
+    double stretch = Math.max(1, ratio);
+    double support = radius * stretch;
+    this.taps = (int) Math.ceil(support) * 2 + 1;
+    this.indices = new int[targetSize * this.taps];
+    this.weights = new double[targetSize * this.taps];
+
+    for (int i = 0; i < targetSize; i++) {
+      double center = (i + 0.5) * ratio - 0.5;
+      int first = (int) Math.floor(center - support) + 1;
+      double total = 0;
+      for (int t = 0; t < this.taps; t++) {
+        int position = first + t;
+        double distance = (position - center) / stretch;
+        double weight = Math.abs(distance) < radius ? kernel(filter, distance) : 0;
+        this.indices[i * this.taps + t] = Math.min(Math.max(position, 0), sourceSize - 1);
+        this.weights[i * this.taps + t] = weight;
+        total += weight;
+      }
+      for (int t = 0; t < this.taps; t++) {
+        this.weights[i * this.taps + t] /= total;
+      }
+    }
+  }
+
+  /**
+   * Returns the bank of a filter between two sizes, from the cache when it was computed before.
+   *
+   * @param filter     the name of the filter, "bicubic" or "lanczos".
+   * @param sourceSize the number of source positions.
+   * @param targetSize the number of target positions.
+   * @return the filter bank.
+   * @throws IllegalArgumentException if the filter is not supported.
+   */
+  static FilterBank forSizes(String filter, int sourceSize, int targetSize) {
+    if (!filter.equals("bicubic") && !filter.equals("lanczos")) {
+      throw new IllegalArgumentException("Resize filter must be bicubic or lanczos");
+    }
+    String key = filter + ":" + sourceSize + ":" + targetSize;
+    synchronized (CACHE) {
+      FilterBank bank = CACHE.get(key);
+      if (bank == null) {
+        bank = new FilterBank(filter, sourceSize, targetSize);
+        CACHE.put(key, bank);
+      }
+      return bank;
+    }
+  }
+
+  /**
+   * Evaluates a filter kernel at a distance from its center, measured in source pixels of the
+   * unstretched filter.
+   *
+   * @param filter   the name of the filter.
+   * @param distance the distance from the center, within the radius of the filter.
+   * @return the unnormalized weight.
+   */
+  private static double kernel(String filter, double distance) {
+    double x = Math.abs(distance);
+    if (filter.equals("bicubic")) {
+      if (x < 1) {
+        return 1.5 * x * x * x - 2.5 * x * x + 1;
+      }
+      return -0.5 * x * x * x + 2.5 * x * x - 4 * x + 2;
+    }
+    if (x < 1e-9) {
+      return 1;
+    }
+    double pix = Math.PI * x;
+    return 3 * Math.sin(pix) * Math.sin(pix / 3) / (pix * pix);
+  }
+
+  /**
+   * Returns the number of source positions every target position reads.
+   *
+   * @return the number of taps of the filter.
+   */
+  int getTaps() {
+    return this.taps;
+  }
+
+  /**
+   * Returns the source positions read by every target position, {@code getTaps()} entries per
+   * target position.
+   *
+   * @return the source positions, clamped to the source.
+   */
+  int[] getIndices() {
+    return this.indices;
+  }
+
+  /**
+   * Returns the weights of the source positions read by every target position, in the same order
+   * as {@link #getIndices()}. The weights of every target position add up to one.
+   *
+   * @return the normalized weights.
+   */
+  double[] getWeights() {
+    return this.weights;
+  }
+}
@@ -5,16 +5,23 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import utils.HaarWavelet;
 import utils.MyUtils;
 
 /**
  * This class performs image compression using Haar wavelet transformations. It applies compression
  * to the RGB channels of an image, reduces the amount of data, and then reconstructs the image with
- * reduced data based on the given percentage.
+ * reduced data based on the given percentage. The reconstruction can optionally stop before the
+ * finest levels, which yields the image at a half, quarter or eighth of its resolution for the cost
+ * of the coarse inverse levels only. Instead of the orthonormal transform on doubles, the exactly
+ * reversible integer transform can be used, which keeps the coefficients as ints and introduces no
+ * rounding error besides the removed coefficients.
  */
 class ImageCompression extends AbstractSpecificOps {
 
   private final int percentage;
+  private final int scale;
+  private final boolean integer;
 
   /**
    * Constructs an ImageCompression object.
@@ -23,8 +30,23 @@ class ImageCompression extends AbstractSpecificOps {
    * @param percentage The percentage of compression to apply.
    */
   ImageCompression(int[][][] inputRGB, int percentage) {
+    this(inputRGB, percentage, 1, false);
+  }
+
+  /**
+   * Constructs an ImageCompression object that reconstructs the image at a reduced resolution.
+   *
+   * @param inputRGB   The 3D array representing the input image in RGB format.
+   * @param percentage The percentage of compression to apply.
+   * @param scale      The factor by which the reconstructed image is smaller, a power of two.
+   * @param integer    True to use the reversible integer transform instead of the orthonormal
+   *                   one.
+   */
+  ImageCompression(int[][][] inputRGB, int percentage, int scale, boolean integer) {
     super(inputRGB);
     this.percentage = percentage;
+    this.scale = scale;
+    this.integer = integer;
   }
 
   /**
@@ -35,11 +57,7 @@ class ImageCompression extends AbstractSpecificOps {
    * @return A new padded image with dimensions as a power of 2.
    */
   private int[][][] adjustPadding(int[][][] inputRGB) {
-    int square = 1;
-    int maxVal = Math.max(inputRGB.length, inputRGB[0].length);
-    while (square < maxVal) {
-      square *= 2;
-    }
+    int square = HaarWavelet.nextPowerOfTwo(Math.max(inputRGB.length, inputRGB[0].length));
 
     int[][][] newPaddedRGB = new int[square][square][3];
     for (int i = 0; i < square; i++) {
@@ -58,52 +76,6 @@ class ImageCompression extends AbstractSpecificOps {
     return newPaddedRGB;
   }
 
-  /**
-   * Applies the Haar wavelet transformation to a row of pixels. The Haar transformation averages
-   * and differs adjacent pixels in pairs.
-   *
-   * @param iterator  The row of pixel values to transform.
-   * @param condition The current size of the transformation block.
-   * @return The transformed row of pixel values.
-   */
-  private double[] getTransformation(double[] iterator, int condition) {
-    List<Double> average = new ArrayList<>();
-    List<Double> difference = new ArrayList<>();
-    for (int j = 0; j < condition - 1; j += 2) {
-      average.add((iterator[j] + iterator[j + 1]) / Math.sqrt(2));
-      difference.add((iterator[j] - iterator[j + 1]) / Math.sqrt(2));
-    }
-    for (int j = 0; j < average.size(); j++) {
-      iterator[j] = average.get(j);
-      iterator[j + average.size()] = difference.get(j);
-    }
-    return iterator;
-  }
-
-  /**
-   * Inversely applies the Haar transformation to a row of pixels. This reconstructs the pixel
-   * values after the transformation.
-   *
-   * @param iterator  The row of transformed pixel values to invert.
-   * @param condition The current size of the block being inverted.
-   * @return The reconstructed row of pixel values.
-   */
-  private double[] getInversion(double[] iterator, int condition) {
-    List<Double> average = new ArrayList<>();
-    List<Double> difference = new ArrayList<>();
-    for (int j = 0; j < condition / 2; j++) {
-      double avg = (iterator[j] + iterator[j + (condition / 2)]) / Math.sqrt(2);
-      average.add(avg);
-      double diff = (iterator[j] - iterator[j + (condition / 2)]) / Math.sqrt(2);
-      difference.add(diff);
-    }
-    for (int j = 0; j < condition; j += 2) {
-      iterator[j] = average.get(j / 2);
-      iterator[j + 1] = difference.get(j / 2);
-    }
-    return iterator;
-  }
-
   /**
    * Applies the Haar wavelet transformation to the entire channel matrix.
    *
@@ -118,99 +90,73 @@ class ImageCompression extends AbstractSpecificOps {
         newDoublePixel[i][j] = channelMatrix[i][j];
       }
     }
-    int condition = size;
-    while (condition > 1) {
-      for (int i = 0; i < size; i++) {
-        newDoublePixel[i] = this.getTransformation(newDoublePixel[i], condition);
-      }
-
-      for (int j = 0; j < size; j++) {
-        double[] column = new double[size];
-        for (int i = 0; i < size; i++) {
-          column[i] = newDoublePixel[i][j];
-        }
-        column = this.getTransformation(column, condition);
-        for (int i = 0; i < size; i++) {
-          newDoublePixel[i][j] = column[i];
-        }
-      }
-      condition /= 2;
-    }
+    HaarWavelet.forward(newDoublePixel, size);
     return newDoublePixel;
   }
 
   /**
-   * Applies the inverse Haar transformation to the entire channel matrix to reconstruct the image.
+   * Applies the inverse Haar transformation to the channel matrix to reconstruct the image. When
+   * fine levels are skipped only the top-left block of the returned matrix holds the reduced
+   * resolution image.
    *
    * @param channelMatrix The matrix of pixel values for a color channel (red, green, or blue).
+   * @param skipLevels    The number of fine levels that are not reconstructed.
    * @return The reconstructed matrix of pixel values.
    */
-  private double[][] inverseHaarTransformation(double[][] channelMatrix) {
-    int size = channelMatrix.length;
-    int condition = 2;
-    while (condition <= size) {
-      for (int i = 0; i < size; i++) {
-        channelMatrix[i] = this.getInversion(channelMatrix[i], condition);
-      }
-
-      for (int j = 0; j < size; j++) {
-        double[] column = new double[size];
-        for (int i = 0; i < size; i++) {
-          column[i] = channelMatrix[i][j];
-        }
-        column = this.getInversion(column, condition);
-        for (int i = 0; i < size; i++) {
-          channelMatrix[i][j] = column[i];
-        }
-      }
-      condition *= 2;
-    }
+  private double[][] inverseHaarTransformation(double[][] channelMatrix, int skipLevels) {
+    HaarWavelet.inverse(channelMatrix, channelMatrix.length, skipLevels);
     return channelMatrix;
   }
 
   /**
-   * Sets values in the channel matrix to 0 if they are below the given threshold. This is the final
-   * step of compression, where insignificant values are removed.
+   * Sets values in the top-left {@code size x size} block of the channel matrix to 0 if they are
+   * below the given threshold. This is the final step of compression, where insignificant values
+   * are removed.
    *
    * @param channelMatrix The matrix of pixel values for a color channel.
+   * @param size          The side of the block to threshold.
    * @param threshold     The threshold below which values are set to 0.
-   * @return The compressed channel matrix.
    */
-  private double[][] compressionChannelFinal(double[][] channelMatrix, double threshold) {
-    for (int i = 0; i < channelMatrix.length; i++) {
-      for (int j = 0; j < channelMatrix.length; j++) {
+  static void applyThreshold(double[][] channelMatrix, int size, double threshold) {
+    for (int i = 0; i < size; i++) {
+      for (int j = 0; j < size; j++) {
         if (Math.abs(channelMatrix[i][j]) < threshold) {
           channelMatrix[i][j] = 0.0;
         }
       }
     }
-    return channelMatrix;
   }
 
   /**
-   * Compresses the image channel by reducing the number of distinct values based on the given
-   * percentage. The threshold is determined based on the sorted distinct values of the matrix.
+   * Adds the distinct magnitudes of the top-left {@code size x size} block of the channel matrix,
+   * rounded to three decimals, to the given set.
    *
-   * @param channelMatrix The matrix of pixel values for a color channel.
-   * @param percentage    The percentage of compression to apply.
-   * @return The compressed channel matrix.
+   * @param channelMatrix  The matrix of transformed values for a color channel.
+   * @param size           The side of the block to read.
+   * @param distinctValues The set collecting the distinct magnitudes.
    */
-  private double[][] compressImage(double[][] channelMatrix, int percentage) {
-    double thresholdValue = Double.MAX_VALUE;
-
-    if (percentage == 100) {
-      return this.compressionChannelFinal(channelMatrix, thresholdValue);
-    }
-
-    Set<Double> distinctValues = new HashSet<>();
-
-    for (double[] doubles : channelMatrix) {
-      for (double value : doubles) {
-        double num = Math.round(value * 1000.0) / 1000.0;
+  static void collectDistinctValues(double[][] channelMatrix, int size,
+      Set<Double> distinctValues) {
+    for (int i = 0; i < size; i++) {
+      for (int j = 0; j < size; j++) {
+        double num = Math.round(channelMatrix[i][j] * 1000.0) / 1000.0;
         distinctValues.add(Math.abs(num));
       }
     }
+  }
 
+  /**
+   * Determines the threshold below which values are removed, based on the sorted distinct
+   * magnitudes of the transformed values and the given percentage.
+   *
+   * @param distinctValues The distinct magnitudes of the transformed values.
+   * @param percentage     The percentage of compression to apply.
+   * @return The threshold value.
+   */
+  static double threshold(Set<Double> distinctValues, int percentage) {
+    if (percentage == 100) {
+      return Double.MAX_VALUE;
+    }
     List<Double> sortedDistinctValues = new ArrayList<>(distinctValues);
     Collections.sort(sortedDistinctValues);
 
@@ -219,36 +165,91 @@ class ImageCompression extends AbstractSpecificOps {
     if (maxIndex >= arrayLen) {
       maxIndex = arrayLen - 1;
     }
-    thresholdValue = sortedDistinctValues.get(maxIndex);
+    return sortedDistinctValues.get(maxIndex);
+  }
 
-    return this.compressionChannelFinal(channelMatrix, thresholdValue);
+  /**
+   * Compresses the image channel by reducing the number of distinct values based on the given
+   * percentage. The threshold is determined based on the sorted distinct values of the matrix.
+   *
+   * @param channelMatrix The matrix of pixel values for a color channel.
+   * @param percentage    The percentage of compression to apply.
+   * @return The compressed channel matrix.
+   */
+  private double[][] compressImage(double[][] channelMatrix, int percentage) {
+    Set<Double> distinctValues = new HashSet<>();
+    if (percentage != 100) {
+      collectDistinctValues(channelMatrix, channelMatrix.length, distinctValues);
+    }
+    applyThreshold(channelMatrix, channelMatrix.length, threshold(distinctValues, percentage));
+    return channelMatrix;
   }
 
   /**
    * A helper method that applies the Haar transformation, compression, and inverse Haar
    * transformation to a single color channel.
    *
-   * @param channel the input color channel to be processed.
+   * @param channel    the input color channel to be processed.
+   * @param skipLevels the number of fine levels that are not reconstructed.
    * @return the compressed channel after all transformations.
    */
-  private double[][] processChannel(int[][] channel) {
+  private double[][] processChannel(int[][] channel, int skipLevels) {
     double[][] haarTransformed = this.haarTransformation(channel);
-    double[][] compressed = this.compressImage(haarTransformed, this.percentage);
-    return this.inverseHaarTransformation(compressed);
+    double[][] compressed = this.percentage < 1 ? haarTransformed
+        : this.compressImage(haarTransformed, this.percentage);
+    return this.inverseHaarTransformation(compressed, skipLevels);
+  }
+
+  /**
+   * A helper method that applies the integer Haar transformation, compression, and inverse integer
+   * transformation to a single color channel. The channel is transformed in place.
+   *
+   * @param channel    the input color channel to be processed.
+   * @param skipLevels the number of fine levels that are not reconstructed.
+   * @return the compressed channel after all transformations.
+   */
+  private int[][] processIntegerChannel(int[][] channel, int skipLevels) {
+    int size = channel.length;
+    HaarWavelet.forwardInteger(channel, size);
+    if (this.percentage >= 1) {
+      Set<Double> distinctValues = new HashSet<>();
+      if (this.percentage != 100) {
+        for (int[] row : channel) {
+          for (int value : row) {
+            distinctValues.add((double) Math.abs(value));
+          }
+        }
+      }
+      double threshold = threshold(distinctValues, this.percentage);
+      for (int[] row : channel) {
+        for (int j = 0; j < size; j++) {
+          if (Math.abs(row[j]) < threshold) {
+            row[j] = 0;
+          }
+        }
+      }
+    }
+    HaarWavelet.inverseInteger(channel, size, skipLevels);
+    return channel;
   }
 
   /**
    * Compresses the input image by applying Haar wavelet transformation, followed by compression and
-   * reconstruction. The compression level is controlled by the given percentage.
+   * reconstruction. The compression level is controlled by the given percentage and the size of
+   * the result by the scale.
    *
    * @return The compressed image as a 3D array.
    */
   @Override
   int[][][] getMatrix() {
-    if (this.percentage < 1) {
+    if (this.percentage < 1 && this.scale == 1) {
       return this.inputRGB;
     }
     int[][][] outputRGB = this.adjustPadding(this.inputRGB);
+    int skipLevels = 0;
+    while ((1 << (skipLevels + 1)) <= this.scale && (outputRGB.length >> (skipLevels + 1)) > 0) {
+      skipLevels++;
+    }
 
     int[][] redChannel = MyUtils.extractChannel(outputRGB, outputRGB.length, outputRGB[0].length,
         0);
@@ -257,13 +258,30 @@ class ImageCompression extends AbstractSpecificOps {
     int[][] blueChannel = MyUtils.extractChannel(outputRGB, outputRGB.length, outputRGB[0].length,
         2);
 
-    double[][] redFinal = this.processChannel(redChannel);
-    double[][] greenFinal = this.processChannel(greenChannel);
-    double[][] blueFinal = this.processChannel(blueChannel);
+    int factor = 1 << skipLevels;
+    int height = (this.inputRGB.length + factor - 1) / factor;
+    int width = (this.inputRGB[0].length + factor - 1) / factor;
+    int[][][] compressedRGB = new int[height][width][3];
+    if (this.integer) {
+      int[][][] channels = {this.processIntegerChannel(redChannel, skipLevels),
+          this.processIntegerChannel(greenChannel, skipLevels),
+          this.processIntegerChannel(blueChannel, skipLevels)};
+      for (int i = 0; i < height; i++) {
+        for (int j = 0; j < width; j++) {
+          for (int k = 0; k < 3; k++) {
+            compressedRGB[i][j][k] = channels[k][i][j];
+          }
+        }
+      }
+      return compressedRGB;
+    }
+
+    double[][] redFinal = this.processChannel(redChannel, skipLevels);
+    double[][] greenFinal = this.processChannel(greenChannel, skipLevels);
+    double[][] blueFinal = this.processChannel(blueChannel, skipLevels);
 
-    int[][][] compressedRGB = new int[this.inputRGB.length][this.inputRGB[0].length][3];
-    for (int i = 0; i < this.inputRGB.length; i++) {
-      for (int j = 0; j < this.inputRGB[0].length; j++) {
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
         compressedRGB[i][j][0] = (int) Math.round(redFinal[i][j]);
         compressedRGB[i][j][1] = (int) Math.round(greenFinal[i][j]);
         compressedRGB[i][j][2] = (int) Math.round(blueFinal[i][j]);
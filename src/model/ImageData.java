@@ -1,5 +1,8 @@
 package model;
 
+import utils.HistogramEstimate;
+import utils.RgbHistogram;
+
 /**
  * The ImageData class represents an image with its associated metadata, including its name,
  * dimensions (height and width), and its RGB values. The image is stored as a 3D array where the
@@ -7,6 +10,12 @@ package model;
  * contains the RGB values for each pixel. This class is used to encapsulate the essential
  * properties of an image and provide access to the image's data through getter methods. The class
  * ensures that the image's data is encapsulated and cannot be modified externally.
+ *
+ * <p>Derived metadata such as the histogram of the image is computed on first use and cached with
+ * the image, as are the tile index used to answer histogram queries over regions of the image, the
+ * pyramid of its power-of-two reductions and, for images used as masks, the compiled mask. Stored
+ * images are never modified, and overwriting a name replaces its ImageData, so the cached data never
+ * goes stale.
  */
 class ImageData {
 
@@ -15,6 +24,10 @@ class ImageData {
   private final int width;
   private final int channels;
   private final int[][][] rgb;
+  private volatile int[][] histogram;
+  private volatile TileHistogramIndex tileIndex;
+  private volatile ImagePyramid pyramid;
+  private volatile CompiledMask compiledMask;
 
   /**
    * Constructs an ImageData object with the specified name, dimensions, and RGB data.
@@ -25,11 +38,26 @@ class ImageData {
    * @param rgb    the 3D array representing the image's RGB values.
    */
   ImageData(String name, int height, int width, int channels, int[][][] rgb) {
+    this(name, height, width, channels, rgb, null);
+  }
+
+  /**
+   * Constructs an ImageData object whose histogram is already known, for example because it was
+   * derived from the histogram of the image it was produced from.
+   *
+   * @param name      the name of the image.
+   * @param height    the height of the image in pixels.
+   * @param width     the width of the image in pixels.
+   * @param rgb       the 3D array representing the image's RGB values.
+   * @param histogram the histogram of the image, or null to compute it on first use.
+   */
+  ImageData(String name, int height, int width, int channels, int[][][] rgb, int[][] histogram) {
     this.name = name;
     this.height = height;
     this.width = width;
     this.channels = channels;
     this.rgb = rgb.clone();
+    this.histogram = histogram;
   }
 
   /**
@@ -77,4 +105,112 @@ class ImageData {
     return this.rgb;
   }
 
+  /**
+   * Returns the pyramid of power-of-two reductions of the image. The pyramid itself is created on
+   * the first call, and its levels are built when they are first requested.
+   *
+   * @return the pyramid of the image.
+   */
+  ImagePyramid getPyramid() {
+    ImagePyramid levels = this.pyramid;
+    if (levels == null) {
+      synchronized (this) {
+        levels = this.pyramid;
+        if (levels == null) {
+          levels = new ImagePyramid(this);
+          this.pyramid = levels;
+        }
+      }
+    }
+    return levels;
+  }
+
+  /**
+   * Returns the image compiled into the spans of its black pixels, for use as a mask. The mask is
+   * compiled once, by the first caller even when several threads ask at the same time, and reused
+   * by every later masked operation.
+   *
+   * @return the compiled mask of the image.
+   */
+  CompiledMask getCompiledMask() {
+    CompiledMask mask = this.compiledMask;
+    if (mask == null) {
+      synchronized (this) {
+        mask = this.compiledMask;
+        if (mask == null) {
+          mask = new CompiledMask(this);
+          this.compiledMask = mask;
+        }
+      }
+    }
+    return mask;
+  }
+
+  /**
+   * Returns whether the histogram of the image has already been computed.
+   *
+   * @return true if the histogram is cached.
+   */
+  boolean hasHistogram() {
+    return this.histogram != null;
+  }
+
+  /**
+   * Returns the red, green and blue histograms of the image. They are computed on the first call
+   * and cached; the returned array is shared and must not be modified.
+   *
+   * @return the frequency of every intensity, indexed by channel and then intensity.
+   */
+  int[][] getHistogram() {
+    int[][] frequencies = this.histogram;
+    if (frequencies == null) {
+      frequencies = RgbHistogram.calculateFrequencies(this.rgb, this.height, this.width);
+      this.histogram = frequencies;
+    }
+    return frequencies;
+  }
+
+  /**
+   * Returns the histograms of the image estimated from at most about {@code budget} pixels. If the
+   * exact histograms are cached, or the image has no more pixels than the budget, the exact
+   * histograms are returned instead.
+   *
+   * @param budget the number of pixels that may be read.
+   * @return the estimated histograms with their error bound.
+   */
+  HistogramEstimate estimateHistogram(int budget) {
+    if (this.hasHistogram() || (long) this.height * this.width <= budget) {
+      return new HistogramEstimate(this.getHistogram(), this.height * this.width, 0);
+    }
+    return RgbHistogram.sampleFrequencies(this.rgb, this.height, this.width, budget);
+  }
+
+  /**
+   * Returns the histograms of a rectangular region of the image, which must lie within the image.
+   * The histograms of the whole image come from the cached histogram; any other region is answered
+   * from the tile index, which is built on the first such query.
+   *
+   * @param x      the first column of the region.
+   * @param y      the first row of the region.
+   * @param width  the number of columns of the region.
+   * @param height the number of rows of the region.
+   * @return the frequency of every intensity in the region, indexed by channel and then intensity.
+   */
+  int[][] getHistogram(int x, int y, int width, int height) {
+    if (x == 0 && y == 0 && width == this.width && height == this.height) {
+      return this.getHistogram();
+    }
+    TileHistogramIndex index = this.tileIndex;
+    if (index == null) {
+      synchronized (this) {
+        index = this.tileIndex;
+        if (index == null) {
+          index = new TileHistogramIndex(this.rgb, this.height, this.width);
+          this.tileIndex = index;
+        }
+      }
+    }
+    return index.histogram(x, y, width, height);
+  }
+
 }
@@ -32,6 +32,24 @@ public class ImageModelImpl implements ImageModel {
     images.put(imageNew.getName(), imageNew);
   }
 
+  /**
+   * Helper method to add the result of a point operation to the image collection. When the
+   * histogram of the image it was produced from is already known, the histogram of the new image is
+   * derived from it through the mapping instead of being computed from the pixels later.
+   *
+   * @param name    the name of the image to add.
+   * @param rgb     the 3D RGB array of the image.
+   * @param parent  the image the new image was produced from.
+   * @param mapping the point mapping that produced the image, or null if there is none.
+   */
+  void addImage(String name, int[][][] rgb, ImageData parent, PointMapping mapping) {
+    int[][] histogram = mapping != null && parent.hasHistogram()
+        ? mapping.histogram(parent.getHistogram()) : null;
+    ImageData imageNew = new ImageData(name, rgb.length, rgb[0].length, rgb[0][0].length, rgb,
+        histogram);
+    images.put(imageNew.getName(), imageNew);
+  }
+
   /**
    * helper method to retrieves the ImageData object for the specified image name.
    *
@@ -94,7 +112,7 @@ public class ImageModelImpl implements ImageModel {
   public void applyBrighten(int intensity, String imageName, String saveImage) {
     ImageData inputImage = this.getImage(imageName);
     int[][][] newRGB = imageOps.brightenDarken(intensity, inputImage);
-    this.addImage(saveImage, newRGB);
+    this.addImage(saveImage, newRGB, inputImage, imageOps.brightenMapping(intensity));
   }
 
   /**
@@ -167,7 +185,7 @@ public class ImageModelImpl implements ImageModel {
   public void applyComponent(String imageName, String saveImage, String type) {
     ImageData inputImage = this.getImage(imageName);
     int[][][] newRGB = imageOps.typeComponent(inputImage, type);
-    this.addImage(saveImage, newRGB);
+    this.addImage(saveImage, newRGB, inputImage, imageOps.componentMapping(type));
 
   }
 
@@ -186,9 +204,9 @@ public class ImageModelImpl implements ImageModel {
     int[][][] redRGB = imageOps.typeComponent(inputImage, "red");
     int[][][] greenRGB = imageOps.typeComponent(inputImage, "green");
     int[][][] blueRGB = imageOps.typeComponent(inputImage, "blue");
-    this.addImage(redImage, redRGB);
-    this.addImage(greenImage, greenRGB);
-    this.addImage(blueImage, blueRGB);
+    this.addImage(redImage, redRGB, inputImage, imageOps.componentMapping("red"));
+    this.addImage(greenImage, greenRGB, inputImage, imageOps.componentMapping("green"));
+    this.addImage(blueImage, blueRGB, inputImage, imageOps.componentMapping("blue"));
 
   }
 
@@ -63,7 +63,7 @@ public class ImageModelImplV2 extends ImageModelImpl implements ImageModelV2 {
       int white) {
     ImageData inputImage = this.getImage(imageName);
     int[][][] newRGB = imageOpsV2.levelAdjustment(inputImage, black, mid, white);
-    this.addImage(saveImage, newRGB);
+    this.addImage(saveImage, newRGB, inputImage, imageOpsV2.levelMapping(black, mid, white));
   }
 
   /**
@@ -77,7 +77,7 @@ public class ImageModelImplV2 extends ImageModelImpl implements ImageModelV2 {
   public void applyColorCorrection(String imageName, String saveImage) {
     ImageData inputImage = this.getImage(imageName);
     int[][][] newRGB = imageOpsV2.colorCorrection(inputImage);
-    this.addImage(saveImage, newRGB);
+    this.addImage(saveImage, newRGB, inputImage, imageOpsV2.colorCorrectionMapping(inputImage));
   }
 
   /**
@@ -0,0 +1,326 @@
+package model;
+
+import java.util.concurrent.CompletableFuture;
+import utils.HistogramEstimate;
+
+/**
+ * The ImageModelImplV4 class extends the ImageModelImplV3 class and provides the operations of the
+ * fourth version of the model. It utilizes the ImageOperationsV4 class for performing these
+ * operations.
+ */
+public class ImageModelImplV4 extends ImageModelImplV3 implements ImageModelV4 {
+
+  private final ImageOperationsV4 imageOpsV4;
+  private boolean pyramidEnabled;
+
+  /**
+   * Constructs an ImageModelImplV4 instance, initializing the ImageOperationsV4 object used for the
+   * operations of this version. Inherits image collection and operations from the parent class.
+   */
+  public ImageModelImplV4() {
+    super();
+    imageOpsV4 = new ImageOperationsV4();
+  }
+
+  /**
+   * Applies compression to the specified image and saves the result at a reduced resolution.
+   * Delegates the compression operation to the ImageOperationsV4 class.
+   *
+   * @param percentage the percentage of image compression (0-100).
+   * @param imageName  the name of the image to compress.
+   * @param saveImage  the name under which the compressed image is saved.
+   * @param scale      the factor by which the saved image is smaller, one of 1, 2, 4 or 8.
+   */
+  @Override
+  public void applyCompress(int percentage, String imageName, String saveImage, int scale) {
+    ImageData inputImage = this.getImage(imageName);
+    int[][][] newRGB = imageOpsV4.imageCompression(inputImage, percentage, scale);
+    this.addImage(saveImage, newRGB);
+  }
+
+  /**
+   * Applies compression with the reversible integer transform to the specified image and saves the
+   * result. Delegates the compression operation to the ImageOperationsV4 class.
+   *
+   * @param percentage the percentage of image compression (0-100).
+   * @param imageName  the name of the image to compress.
+   * @param saveImage  the name under which the compressed image is saved.
+   * @param scale      the factor by which the saved image is smaller, one of 1, 2, 4 or 8.
+   */
+  @Override
+  public void applyIntegerCompress(int percentage, String imageName, String saveImage,
+      int scale) {
+    ImageData inputImage = this.getImage(imageName);
+    int[][][] newRGB = imageOpsV4.integerCompression(inputImage, percentage, scale);
+    this.addImage(saveImage, newRGB);
+  }
+
+  /**
+   * Applies block-wise compression to the specified image and saves the result. Delegates the
+   * compression operation to the ImageOperationsV4 class.
+   *
+   * @param percentage      the percentage of image compression (0-100).
+   * @param imageName       the name of the image to compress.
+   * @param saveImage       the name under which the compressed image is saved.
+   * @param blockSize       the side of the blocks, a power of two between 8 and 4096.
+   * @param globalThreshold true to use one threshold per channel for the whole image.
+   */
+  @Override
+  public void applyBlockCompress(int percentage, String imageName, String saveImage,
+      int blockSize, boolean globalThreshold) {
+    ImageData inputImage = this.getImage(imageName);
+    int[][][] newRGB = imageOpsV4.blockCompression(inputImage, percentage, blockSize,
+        globalThreshold);
+    this.addImage(saveImage, newRGB);
+  }
+
+  /**
+   * Renders the histogram of the specified image from the histogram cached with it. Delegates the
+   * rendering to the ImageOperationsV4 class.
+   *
+   * @param imageName the name of the image whose histogram is rendered.
+   * @return the 3D RGB array of the histogram plot.
+   */
+  @Override
+  public int[][][] renderHistogram(String imageName) {
+    return imageOpsV4.imageHistogram(this.getImage(imageName));
+  }
+
+  /**
+   * Returns a copy of the histogram cached with the specified image.
+   *
+   * @param imageName the name of the image.
+   * @return the frequency of every intensity, indexed by channel and then intensity.
+   */
+  @Override
+  public int[][] getHistogram(String imageName) {
+    return copyHistogram(this.getImage(imageName).getHistogram());
+  }
+
+  /**
+   * Estimates the histograms of the specified image by sampling, unless they are cached.
+   *
+   * @param imageName    the name of the image.
+   * @param sampleBudget the number of pixels that may be read.
+   * @return the estimated histograms with their error bound.
+   * @throws IllegalArgumentException if the sample budget is not positive.
+   */
+  @Override
+  public HistogramEstimate estimateHistogram(String imageName, int sampleBudget) {
+    if (sampleBudget <= 0) {
+      throw new IllegalArgumentException("Sample budget must be positive");
+    }
+    HistogramEstimate estimate = this.getImage(imageName).estimateHistogram(sampleBudget);
+    return new HistogramEstimate(copyHistogram(estimate.getFrequencies()), estimate.getSamples(),
+        estimate.getErrorBound());
+  }
+
+  /**
+   * Computes the exact histograms of the specified image on the common fork/join pool and caches
+   * them with the image.
+   *
+   * @param imageName the name of the image.
+   * @return a future completed with the histograms.
+   */
+  @Override
+  public CompletableFuture<int[][]> computeHistogram(String imageName) {
+    ImageData image = this.getImage(imageName);
+    return CompletableFuture.supplyAsync(() -> copyHistogram(image.getHistogram()));
+  }
+
+  /**
+   * Returns the histograms of a rectangular region of the specified image. Delegates the query to
+   * the ImageOperationsV4 class.
+   *
+   * @param imageName the name of the image.
+   * @param x         the first column of the region.
+   * @param y         the first row of the region.
+   * @param width     the number of columns of the region.
+   * @param height    the number of rows of the region.
+   * @return the histograms of the region.
+   */
+  @Override
+  public int[][] getHistogram(String imageName, int x, int y, int width, int height) {
+    ImageData inputImage = this.getImage(imageName);
+    return copyHistogram(imageOpsV4.regionFrequencies(inputImage, x, y, width, height));
+  }
+
+  /**
+   * Generates the histogram plot of a region of the specified image and saves it. Delegates the
+   * operation to the ImageOperationsV4 class.
+   *
+   * @param imageName the name of the image.
+   * @param saveImage the name under which the histogram is saved.
+   * @param x         the first column of the region.
+   * @param y         the first row of the region.
+   * @param width     the number of columns of the region.
+   * @param height    the number of rows of the region.
+   */
+  @Override
+  public void applyHistogram(String imageName, String saveImage, int x, int y, int width,
+      int height) {
+    ImageData inputImage = this.getImage(imageName);
+    int[][][] newRGB = imageOpsV4.regionHistogram(inputImage, x, y, width, height);
+    this.addImage(saveImage, newRGB);
+  }
+
+  /**
+   * Color corrects the specified image from the histogram peaks of a region of it and saves the
+   * result. Delegates the operation to the ImageOperationsV4 class.
+   *
+   * @param imageName the name of the image to correct.
+   * @param saveImage the name under which the corrected image is saved.
+   * @param x         the first column of the region.
+   * @param y         the first row of the region.
+   * @param width     the number of columns of the region.
+   * @param height    the number of rows of the region.
+   */
+  @Override
+  public void applyColorCorrection(String imageName, String saveImage, int x, int y, int width,
+      int height) {
+    ImageData inputImage = this.getImage(imageName);
+    int[][][] newRGB = imageOpsV4.regionColorCorrection(inputImage, x, y, width, height);
+    this.addImage(saveImage, newRGB);
+  }
+
+  /**
+   * Enables or disables resampling downscaled images from the pyramid of the source image.
+   *
+   * @param enabled true to downscale from image pyramids.
+   */
+  @Override
+  public void setPyramidEnabled(boolean enabled) {
+    this.pyramidEnabled = enabled;
+  }
+
+  /**
+   * Applies downscaling to the specified image and saves the result. When pyramids are enabled the
+   * image is resampled from the smallest cached reduction that is at least as large as the target
+   * size; otherwise from the image itself. The downscaling operation is delegated to the
+   * ImageOperationsV4 class.
+   *
+   * @param imageName The name of the image to downscale.
+   * @param saveImage The name under which the downscaled image is saved.
+   * @param height    The target height for the downscaled image.
+   * @param width     The target width for the downscaled image.
+   */
+  @Override
+  public void applyDownScaling(String imageName, String saveImage, int height, int width) {
+    this.downscale(imageName, saveImage, height, width, this.pyramidEnabled);
+  }
+
+  /**
+   * Downscales the specified image from the smallest reduction in its image pyramid that is at
+   * least as large as the target size, and saves the result.
+   *
+   * @param imageName The name of the image to downscale.
+   * @param saveImage The name under which the downscaled image is saved.
+   * @param height    The target height for the downscaled image.
+   * @param width     The target width for the downscaled image.
+   */
+  @Override
+  public void applyPyramidDownScaling(String imageName, String saveImage, int height,
+      int width) {
+    this.downscale(imageName, saveImage, height, width, true);
+  }
+
+  /**
+   * Downscales an image by bilinear sampling, optionally from its image pyramid.
+   *
+   * @param imageName The name of the image to downscale.
+   * @param saveImage The name under which the downscaled image is saved.
+   * @param height    The target height for the downscaled image.
+   * @param width     The target width for the downscaled image.
+   * @param pyramid   true to resample from the pyramid of the image.
+   */
+  private void downscale(String imageName, String saveImage, int height, int width,
+      boolean pyramid) {
+    ImageData inputImage = this.getImage(imageName);
+    if (pyramid && height > 0 && width > 0
+        && height <= inputImage.getHeight() && width <= inputImage.getWidth()) {
+      ImagePyramid levels = inputImage.getPyramid();
+      inputImage = levels.getLevel(levels.levelFor(height, width));
+    }
+    int[][][] newRGB = imageOpsV4.downscaleImage(inputImage, height, width);
+    this.addImage(saveImage, newRGB);
+  }
+
+  /**
+   * Downscales the specified image by area averaging and saves the result. The downscaling
+   * operation is delegated to the ImageOperationsV4 class.
+   *
+   * @param imageName The name of the image to downscale.
+   * @param saveImage The name under which the downscaled image is saved.
+   * @param height    The target height for the downscaled image.
+   * @param width     The target width for the downscaled image.
+   */
+  @Override
+  public void applyAreaDownScaling(String imageName, String saveImage, int height, int width) {
+    ImageData inputImage = this.getImage(imageName);
+    int[][][] newRGB = imageOpsV4.areaDownscale(inputImage, height, width);
+    this.addImage(saveImage, newRGB);
+  }
+
+  /**
+   * Resizes the specified image with a bicubic or Lanczos filter and saves the result. The
+   * resampling is delegated to the ImageOperationsV4 class.
+   *
+   * @param imageName The name of the image to resize.
+   * @param saveImage The name under which the resized image is saved.
+   * @param height    The target height.
+   * @param width     The target width.
+   * @param filter    The resampling filter, "bicubic" or "lanczos".
+   */
+  @Override
+  public void applyResize(String imageName, String saveImage, int height, int width,
+      String filter) {
+    ImageData inputImage = this.getImage(imageName);
+    int[][][] newRGB = imageOpsV4.resize(inputImage, height, width, filter);
+    this.addImage(saveImage, newRGB);
+  }
+
+  /**
+   * Returns the specified image with an operation applied to all of it, without saving it.
+   * Delegates the operation to the ImageOperationsV4 class.
+   *
+   * @param operationName the name of the operation.
+   * @param imageName     the name of the image.
+   * @param params        the parameters of the operation, if any.
+   * @return the operated image.
+   */
+  @Override
+  public int[][][] previewOperation(String operationName, String imageName, int[] params) {
+    ImageData inputImage = this.getImage(imageName);
+    return imageOpsV4.previewOperation(operationName, inputImage, params);
+  }
+
+  /**
+   * Applies a morphological operation to a mask image and saves the resulting mask. Delegates the
+   * operation to the ImageOperationsV4 class.
+   *
+   * @param operation     the operation, "erode", "dilate", "open" or "close".
+   * @param maskImage     the name of the mask image.
+   * @param saveImage     the name under which the resulting mask is saved.
+   * @param elementHeight the height of the structuring element.
+   * @param elementWidth  the width of the structuring element.
+   */
+  @Override
+  public void applyMorphology(String operation, String maskImage, String saveImage,
+      int elementHeight, int elementWidth) {
+    ImageData inputImage = this.getImage(maskImage);
+    int[][][] newRGB = imageOpsV4.maskMorphology(operation, inputImage, elementHeight,
+        elementWidth);
+    this.addImage(saveImage, newRGB);
+  }
+
+  /**
+   * Copies histograms so that callers cannot modify the ones cached with an image.
+   *
+   * @param histogram the histograms to copy, indexed by channel and then intensity.
+   * @return the copy.
+   */
+  private static int[][] copyHistogram(int[][] histogram) {
+    return new int[][]{histogram[0].clone(), histogram[1].clone(), histogram[2].clone()};
+  }
+
+}
@@ -0,0 +1,211 @@
+package model;
+
+import java.util.concurrent.CompletableFuture;
+import utils.HistogramEstimate;
+
+/**
+ * The ImageModelV4 interface extends the ImageModelV3 interface with operations aimed at working
+ * with large images and large numbers of images, such as reconstructing compressed images at a
+ * reduced resolution. Implementations are expected to keep the behaviour of all the operations
+ * inherited from the earlier versions unchanged.
+ */
+public interface ImageModelV4 extends ImageModelV3 {
+
+  /**
+   * Compresses the specified image to a given percentage and reconstructs it at a reduced
+   * resolution. Only the coarse levels of the inverse wavelet transform are run, so a half, quarter
+   * or eighth resolution result costs a fraction of a full reconstruction.
+   *
+   * @param percentage the compression percentage (0-100), where 0 is no compression and 100 is
+   *                   maximum compression.
+   * @param imageName  the name of the image to compress.
+   * @param saveImage  the name under which the compressed image will be saved.
+   * @param scale      the factor by which the saved image is smaller, one of 1, 2, 4 or 8.
+   */
+  void applyCompress(int percentage, String imageName, String saveImage, int scale);
+
+  /**
+   * Compresses the specified image using the reversible integer Haar transform (S-transform) and
+   * reconstructs it at the given resolution. The transform works on ints, so no rounding error is
+   * introduced besides the removed coefficients and a percentage of 0 is lossless.
+   *
+   * @param percentage the compression percentage (0-100), where 0 is no compression and 100 is
+   *                   maximum compression.
+   * @param imageName  the name of the image to compress.
+   * @param saveImage  the name under which the compressed image will be saved.
+   * @param scale      the factor by which the saved image is smaller, one of 1, 2, 4 or 8.
+   */
+  void applyIntegerCompress(int percentage, String imageName, String saveImage, int scale);
+
+  /**
+   * Compresses the specified image in independent square blocks. Memory use is bounded by the
+   * block size rather than the image size, and the blocks are compressed in parallel.
+   *
+   * @param percentage      the compression percentage (0-100), where 0 is no compression and 100
+   *                        is maximum compression.
+   * @param imageName       the name of the image to compress.
+   * @param saveImage       the name under which the compressed image will be saved.
+   * @param blockSize       the side of the blocks, a power of two between 8 and 4096.
+   * @param globalThreshold true to estimate one threshold per channel over the whole image, false
+   *                        to choose the threshold of each block from its own coefficients.
+   */
+  void applyBlockCompress(int percentage, String imageName, String saveImage, int blockSize,
+      boolean globalThreshold);
+
+  /**
+   * Renders the histogram of the specified image without storing it as an image. The histogram is
+   * computed once per stored image and cached with it, so repeated calls only redraw it.
+   *
+   * @param imageName the name of the image whose histogram is rendered.
+   * @return the 3D RGB array of the 256x256 histogram plot.
+   */
+  int[][][] renderHistogram(String imageName);
+
+  /**
+   * Returns the red, green and blue histograms of the specified image. The histogram is computed
+   * once per stored image and cached with it.
+   *
+   * @param imageName the name of the image.
+   * @return the frequency of every intensity, indexed by channel (0 for Red, 1 for Green, 2 for
+   *         Blue) and then by intensity.
+   */
+  int[][] getHistogram(String imageName);
+
+  /**
+   * Estimates the histograms of the specified image by stratified sampling of at most about
+   * {@code sampleBudget} pixels, which keeps histograms of huge images interactive. The exact
+   * histograms are returned instead when they are already cached or the image is small enough.
+   *
+   * @param imageName    the name of the image.
+   * @param sampleBudget the number of pixels that may be read.
+   * @return the estimated histograms with their error bound.
+   */
+  HistogramEstimate estimateHistogram(String imageName, int sampleBudget);
+
+  /**
+   * Computes the exact histograms of the specified image in the background. The image is looked up
+   * when this method is called, so later changes to the name do not affect the result.
+   *
+   * @param imageName the name of the image.
+   * @return a future completed with the frequency of every intensity, indexed by channel and then
+   *         intensity.
+   */
+  CompletableFuture<int[][]> computeHistogram(String imageName);
+
+  /**
+   * Returns the red, green and blue histograms of a rectangular region of the specified image. The
+   * histograms of tile-aligned parts of the region are read from a per-image tile index, so only
+   * the edges of the region are scanned.
+   *
+   * @param imageName the name of the image.
+   * @param x         the first column of the region.
+   * @param y         the first row of the region.
+   * @param width     the number of columns of the region.
+   * @param height    the number of rows of the region.
+   * @return the frequency of every intensity in the region, indexed by channel and then intensity.
+   */
+  int[][] getHistogram(String imageName, int x, int y, int width, int height);
+
+  /**
+   * Generates the histogram plot of a rectangular region of the specified image and saves it.
+   *
+   * @param imageName the name of the image.
+   * @param saveImage the name under which the histogram will be saved.
+   * @param x         the first column of the region.
+   * @param y         the first row of the region.
+   * @param width     the number of columns of the region.
+   * @param height    the number of rows of the region.
+   */
+  void applyHistogram(String imageName, String saveImage, int x, int y, int width, int height);
+
+  /**
+   * Color corrects the specified image using the histogram peaks of a rectangular region of it, and
+   * saves the result.
+   *
+   * @param imageName the name of the image to correct.
+   * @param saveImage the name under which the corrected image will be saved.
+   * @param x         the first column of the region.
+   * @param y         the first row of the region.
+   * @param width     the number of columns of the region.
+   * @param height    the number of rows of the region.
+   */
+  void applyColorCorrection(String imageName, String saveImage, int x, int y, int width,
+      int height);
+
+  /**
+   * Enables or disables resampling from image pyramids. When enabled, downscaling builds and caches
+   * the power-of-two reductions of the source image and resamples from the smallest one that is
+   * still at least as large as the target, so large reductions read only a fraction of the source
+   * pixels and repeated downscales of the same image share the work. Cached reductions may be
+   * evicted under memory pressure. Disabled by default, in which case downscaling always resamples
+   * the full resolution image.
+   *
+   * @param enabled true to downscale from image pyramids.
+   */
+  void setPyramidEnabled(boolean enabled);
+
+  /**
+   * Downscales the specified image by area averaging and saves the result. Every output pixel is
+   * the average of all the source pixels it covers, which avoids the aliasing of bilinear sampling
+   * at large reduction factors.
+   *
+   * @param imageName the name of the input image to be downscaled.
+   * @param saveImage the name of the output image where the downscaled image will be saved.
+   * @param height    the target height for the downscaled image.
+   * @param width     the target width for the downscaled image.
+   */
+  void applyAreaDownScaling(String imageName, String saveImage, int height, int width);
+
+  /**
+   * Downscales the specified image by resampling the smallest reduction in its image pyramid that
+   * is still at least as large as the target, whether or not pyramids are enabled for
+   * {@link #applyDownScaling(String, String, int, int)}.
+   *
+   * @param imageName the name of the input image to be downscaled.
+   * @param saveImage the name of the output image where the downscaled image will be saved.
+   * @param height    the target height for the downscaled image.
+   * @param width     the target width for the downscaled image.
+   */
+  void applyPyramidDownScaling(String imageName, String saveImage, int height, int width);
+
+  /**
+   * Resizes the specified image to any size, larger or smaller, with a high quality resampling
+   * filter and saves the result.
+   *
+   * @param imageName the name of the input image to be resized.
+   * @param saveImage the name of the output image where the resized image will be saved.
+   * @param height    the target height, a positive number.
+   * @param width     the target width, a positive number.
+   * @param filter    the resampling filter, "bicubic" or "lanczos".
+   */
+  void applyResize(String imageName, String saveImage, int height, int width, String filter);
+
+  /**
+   * Returns the specified image with an operation available for split preview applied to all of
+   * it, without saving the result. A split preview that is moved repeatedly can be composed from
+   * this image and the original one; unlike applySplitPreview, the operated part then matches the
+   * result of applying the operation to the whole image.
+   *
+   * @param operationName the name of the operation (e.g. "blur", "levels-adjust").
+   * @param imageName     the name of the image.
+   * @param params        the parameters of the operation, if any.
+   * @return the operated image as a 3D RGB array.
+   */
+  int[][][] previewOperation(String operationName, String imageName, int[] params);
+
+  /**
+   * Grows or shrinks the selected (black) region of a mask image with a rectangular structuring
+   * element and saves the resulting mask. Erosion shrinks the region, dilation grows it, opening
+   * removes selected specks smaller than the element and closing fills holes smaller than it. The
+   * cost per pixel does not depend on the size of the element.
+   *
+   * @param operation     the operation, "erode", "dilate", "open" or "close".
+   * @param maskImage     the name of the mask image.
+   * @param saveImage     the name under which the resulting mask is saved.
+   * @param elementHeight the height of the structuring element.
+   * @param elementWidth  the width of the structuring element.
+   */
+  void applyMorphology(String operation, String maskImage, String saveImage, int elementHeight,
+      int elementWidth);
+
+}
@@ -103,17 +103,17 @@ class ImageOperations {
    * @return the brightened/darkened image.
    */
   int[][][] brightenDarken(int intensity, ImageData inputImage) {
+    return this.brightenMapping(intensity).apply(inputImage);
+  }
 
-    int[][][] rgb = cloneMatrix(inputImage.getRgb());
-
-    for (int i = 0; i < inputImage.getHeight(); i++) {
-      for (int j = 0; j < inputImage.getWidth(); j++) {
-        for (int k = 0; k < inputImage.getChannels(); k++) {
-          rgb[i][j][k] = clamp(rgb[i][j][k] + intensity);
-        }
-      }
-    }
-    return rgb;
+  /**
+   * Returns the point mapping of brightening or darkening the image by the specified intensity.
+   *
+   * @param intensity the amount to brighten (positive) or darken (negative).
+   * @return the mapping of every channel value.
+   */
+  PointMapping brightenMapping(int intensity) {
+    return PointMapping.perChannel((channel, value) -> clamp(value + intensity));
   }
 
   /**
@@ -236,6 +236,10 @@ class ImageOperations {
    * @return the extracted component image as a 3D array of RGB values.
    */
   int[][][] typeComponent(ImageData inputImage, String type) {
+    PointMapping mapping = this.componentMapping(type);
+    if (mapping != null) {
+      return mapping.apply(inputImage);
+    }
     int[][][] rgb = cloneMatrix(inputImage.getRgb());
     int height = inputImage.getHeight();
     int width = inputImage.getWidth();
@@ -259,6 +263,30 @@ class ImageOperations {
     }
   }
 
+  /**
+   * Returns the point mapping of extracting the given component, if the component depends on a
+   * single channel. The luma, value and intensity components mix the channels of a pixel and have
+   * no such mapping.
+   *
+   * @param type the type of component to extract (e.g., "red", "green", "blue").
+   * @return the mapping of the component, or null if the component mixes channels.
+   */
+  PointMapping componentMapping(String type) {
+    if (type == null) {
+      return null;
+    }
+    switch (type) {
+      case "red":
+        return PointMapping.component(0);
+      case "green":
+        return PointMapping.component(1);
+      case "blue":
+        return PointMapping.component(2);
+      default:
+        return null;
+    }
+  }
+
   /**
    * Combines three color channel images (red, green, and blue) into one RGB image.
    *
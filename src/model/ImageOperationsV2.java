@@ -1,7 +1,6 @@
 package model;
 
 
-import static utils.MyUtils.calculateFrequency;
 import static utils.MyUtils.clamp;
 import static utils.MyUtils.cloneMatrix;
 
@@ -46,8 +45,7 @@ public class ImageOperationsV2 extends ImageOperations {
    * @return A 3D array representing the normalized histogram.
    */
   int[][][] imageHistogram(ImageData inputImage) {
-    int[][][] rgb = cloneMatrix(inputImage.getRgb());
-    return (new NormalizedHistogram(rgb)).getMatrix();
+    return (new NormalizedHistogram(inputImage.getRgb(), inputImage.getHistogram())).getMatrix();
   }
 
   /**
@@ -96,25 +94,23 @@ public class ImageOperationsV2 extends ImageOperations {
       throw new IllegalArgumentException("Level Adjustment parameters are invalid");
     }
 
-    int[][][] inputRGB = cloneMatrix(inputImage.getRgb());
-    int height = inputImage.getHeight();
-    int width = inputImage.getWidth();
-    int channels = inputImage.getChannels();
-    double[] coefficients = curveCoefficients(black, mid, white);
-
-    int[][][] outputRGB = new int[height][width][3];
+    return this.levelMapping(black, mid, white).apply(inputImage);
+  }
 
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        for (int k = 0; k < channels; k++) {
-          int value = inputRGB[i][j][k];
-          outputRGB[i][j][k] = clamp(
-              (int) ((coefficients[0] * value * value) + (coefficients[1] * value)
-                  + coefficients[2]));
-        }
-      }
-    }
-    return outputRGB;
+  /**
+   * Returns the point mapping of a level adjustment, the quadratic curve through the black, mid and
+   * white points evaluated for every channel value.
+   *
+   * @param black The black point.
+   * @param mid   The mid point.
+   * @param white The white point.
+   * @return the mapping of every channel value.
+   */
+  PointMapping levelMapping(int black, int mid, int white) {
+    double[] coefficients = curveCoefficients(black, mid, white);
+    return PointMapping.perChannel((channel, value) -> clamp(
+        (int) ((coefficients[0] * value * value) + (coefficients[1] * value)
+            + coefficients[2])));
   }
 
   /**
@@ -156,30 +152,36 @@ public class ImageOperationsV2 extends ImageOperations {
    * @return A 3D array representing the color-corrected image.
    */
   int[][][] colorCorrection(ImageData inputImage) {
-    int[][][] inputRGB = cloneMatrix(inputImage.getRgb());
-    int height = inputImage.getHeight();
-    int width = inputImage.getWidth();
-    int channels = inputImage.getChannels();
+    return this.colorCorrectionMapping(inputImage).apply(inputImage);
+  }
 
-    int[] redFrequencies = calculateFrequency(inputRGB, height, width, 0);
-    int[] greenFrequencies = calculateFrequency(inputRGB, height, width, 1);
-    int[] blueFrequencies = calculateFrequency(inputRGB, height, width, 2);
+  /**
+   * Returns the point mapping of color correcting the image, which shifts every channel so that
+   * its histogram peak moves to the average peak of the three channels. The peaks are read from
+   * the histogram cached with the image.
+   *
+   * @param inputImage The image to correct.
+   * @return the mapping of every channel value.
+   */
+  PointMapping colorCorrectionMapping(ImageData inputImage) {
+    return this.colorCorrectionMapping(inputImage.getHistogram());
+  }
 
-    int redIndex = findPeakIndex(redFrequencies);
-    int greenIndex = findPeakIndex(greenFrequencies);
-    int blueIndex = findPeakIndex(blueFrequencies);
+  /**
+   * Returns the point mapping of color correcting with the given histograms, which shifts every
+   * channel so that its histogram peak moves to the average peak of the three channels.
+   *
+   * @param frequencies The histograms to find the peaks in, indexed by channel and then intensity.
+   * @return the mapping of every channel value.
+   */
+  PointMapping colorCorrectionMapping(int[][] frequencies) {
+    int redIndex = findPeakIndex(frequencies[0]);
+    int greenIndex = findPeakIndex(frequencies[1]);
+    int blueIndex = findPeakIndex(frequencies[2]);
     int[] indexes = {redIndex, greenIndex, blueIndex};
     int averageIndex = (redIndex + greenIndex + blueIndex) / 3;
-
-    int[][][] correctedRGB = new int[height][width][3];
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        for (int k = 0; k < channels; k++) {
-          correctedRGB[i][j][k] = adjustValue(inputRGB[i][j][k], indexes[k], averageIndex);
-        }
-      }
-    }
-    return correctedRGB;
+    return PointMapping.perChannel(
+        (channel, value) -> adjustValue(value, indexes[channel], averageIndex));
   }
 
   /**
@@ -3,7 +3,11 @@ package model;
 import static utils.MyUtils.clamp;
 import static utils.MyUtils.cloneMatrix;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.function.Function;
+import java.util.stream.IntStream;
 
 /**
  * A class that provides image manipulation operations, including downscaling and masking. This
@@ -14,36 +18,37 @@ import java.util.function.Function;
  */
 public class ImageOperationsV3 extends ImageOperationsV2 {
 
+  private static final int MAX_BAND_ROWS = 64;
+
   /**
-   * Calculates the surrounding points for bi-linear interpolation based on the new coordinates. The
-   * surrounding points are the top-left, top-right, bottom-left, and bottom-right points in the
-   * original image corresponding to the target coordinates.
+   * Computes the source indices and weights of bi-linear interpolation along one axis. Output
+   * position {@code i} maps to {@code i * ratio} in the original image; its lower and upper
+   * neighbours are the floor and ceiling of that position, clamped to the image, and its weight is
+   * the distance from the lower neighbour.
    *
-   * @param newX      The X coordinate in the downscaled image.
-   * @param newY      The Y coordinate in the downscaled image.
-   * @param heightRGB The height of the original image.
-   * @param widthRGB  The width of the original image.
-   * @return A 2D array containing the coordinates of the four surrounding points.
+   * @param size     The number of output positions along the axis.
+   * @param ratio    The ratio between the original and the output size along the axis.
+   * @param limit    The size of the original image along the axis.
+   * @param lower    Receives the lower neighbour of every output position.
+   * @param upper    Receives the upper neighbour of every output position.
+   * @param fraction Receives the weight of the upper neighbour of every output position.
    */
-  private int[][] calculateSurroundingPoints(double newX, double newY, int heightRGB,
-      int widthRGB) {
-    int aX = Math.min((int) Math.floor(newX), heightRGB - 1);
-    int aY = Math.min((int) Math.floor(newY), widthRGB - 1);
-    int bX = Math.min((int) Math.ceil(newX), heightRGB - 1);
-    int cY = Math.min((int) Math.ceil(newY), widthRGB - 1);
-
-    return new int[][]{
-        {aX, aY},
-        {bX, aY},
-        {aX, cY},
-        {bX, cY}
-    };
+  private static void interpolationTable(int size, double ratio, int limit, int[] lower,
+      int[] upper, double[] fraction) {
+    for (int i = 0; i < size; i++) {
+      double position = i * ratio;
+      lower[i] = Math.min((int) Math.floor(position), limit - 1);
+      upper[i] = Math.min((int) Math.ceil(position), limit - 1);
+      fraction[i] = position - lower[i];
+    }
   }
 
   /**
    * Downscales an image to the specified height and width using bi-linear interpolation. The
    * function adjusts the pixel values based on surrounding pixels in the original image to generate
-   * a smaller image with smoother transitions.
+   * a smaller image with smoother transitions. The neighbours and weights depend only on the output
+   * row or the output column, so they are computed once per row and per column up front, and the
+   * output rows are then interpolated in parallel.
    *
    * @param inputImage The original image to be downscaled.
    * @param height     The target height for the downscaled image.
@@ -53,7 +58,7 @@ public class ImageOperationsV3 extends ImageOperationsV2 {
    *                                  or larger than the original image dimensions).
    */
   int[][][] downscaleImage(ImageData inputImage, int height, int width) {
-    int[][][] inputRGB = cloneMatrix(inputImage.getRgb());
+    int[][][] inputRGB = inputImage.getRgb();
     int heightRGB = inputImage.getHeight();
     int widthRGB = inputImage.getWidth();
     int channels = inputImage.getChannels();
@@ -66,45 +71,130 @@ public class ImageOperationsV3 extends ImageOperationsV2 {
     double ratioHeight = (double) heightRGB / height;
     double ratioWidth = (double) widthRGB / width;
 
+    int[] topRows = new int[height];
+    int[] bottomRows = new int[height];
+    double[] rowFractions = new double[height];
+    interpolationTable(height, ratioHeight, heightRGB, topRows, bottomRows, rowFractions);
+    int[] leftColumns = new int[width];
+    int[] rightColumns = new int[width];
+    double[] columnFractions = new double[width];
+    interpolationTable(width, ratioWidth, widthRGB, leftColumns, rightColumns, columnFractions);
+
     int[][][] outputRGB = new int[height][width][3];
 
-    for (int i = 0; i < height; i++) {
+    IntStream.range(0, height).parallel().forEach(i -> {
+      int[][] top = inputRGB[topRows[i]];
+      int[][] bottom = inputRGB[bottomRows[i]];
+      double xFraction = rowFractions[i];
+      int[][] outputRow = outputRGB[i];
       for (int j = 0; j < width; j++) {
-        double newX = i * ratioHeight;
-        double newY = j * ratioWidth;
-
-        int[][] surroundingPoints = calculateSurroundingPoints(newX, newY, heightRGB, widthRGB);
-        int aX = surroundingPoints[0][0];
-        int aY = surroundingPoints[0][1];
-        int bX = surroundingPoints[1][0];
-        int bY = surroundingPoints[1][1];
-        int cX = surroundingPoints[2][0];
-        int cY = surroundingPoints[2][1];
-        int dX = surroundingPoints[3][0];
-        int dY = surroundingPoints[3][1];
-
-        double xFraction = newX - aX;
-        double yFraction = newY - aY;
-
+        int[] a = top[leftColumns[j]];
+        int[] b = bottom[leftColumns[j]];
+        int[] c = top[rightColumns[j]];
+        int[] d = bottom[rightColumns[j]];
+        double yFraction = columnFractions[j];
         for (int channel = 0; channel < channels; channel++) {
-          double n =
-              inputRGB[aX][aY][channel] * (1 - xFraction) + inputRGB[bX][bY][channel] * xFraction;
-          double m =
-              inputRGB[cX][cY][channel] * (1 - xFraction) + inputRGB[dX][dY][channel] * xFraction;
-
-          int interpolatedValue = (int) Math.round(n * (1 - yFraction) + m * yFraction);
-          interpolatedValue = clamp(interpolatedValue);
-          outputRGB[i][j][channel] = interpolatedValue;
+          double n = a[channel] * (1 - xFraction) + b[channel] * xFraction;
+          double m = c[channel] * (1 - xFraction) + d[channel] * xFraction;
+          outputRow[j][channel] = clamp((int) Math.round(n * (1 - yFraction) + m * yFraction));
         }
       }
-    }
+    });
     return outputRGB;
   }
 
+  /**
+   * Returns how far beyond a pixel an operation reads the image when computing that pixel: 0 for
+   * operations on single pixels, the kernel radius for filters, and -1 for operations that depend
+   * on the whole image, such as color correction.
+   *
+   * @param operationType The type of the operation.
+   * @return the halo of the operation in pixels, or -1 if it reads the whole image.
+   */
+  private static int operationHalo(String operationType) {
+    if (operationType.equals("blur")) {
+      return 1;
+    } else if (operationType.equals("sharpen")) {
+      return 2;
+    } else if (operationType.equals("sepia") || operationType.endsWith("-component")) {
+      return 0;
+    }
+    return -1;
+  }
+
+  /**
+   * Copies the pixels inside the spans of the given rows from an operated image into the output.
+   *
+   * @param operatedRGB The operated pixels, whose origin lies at the given offsets of the output.
+   * @param mask        The compiled mask selecting the pixels to copy.
+   * @param first       The first row to copy.
+   * @param last        The last row to copy.
+   * @param top         The output row of the first row of the operated pixels.
+   * @param left        The output column of the first column of the operated pixels.
+   * @param outputRGB   The output image.
+   */
+  private static void copySpans(int[][][] operatedRGB, CompiledMask mask, int first, int last,
+      int top, int left, int[][][] outputRGB) {
+    for (int i = first; i <= last; i++) {
+      int[][] operatedRow = operatedRGB[i - top];
+      int[][] outputRow = outputRGB[i];
+      for (int span = mask.firstSpan(i); span < mask.firstSpan(i + 1); span++) {
+        for (int j = mask.spanStart(span); j < mask.spanEnd(span); j++) {
+          System.arraycopy(operatedRow[j - left], 0, outputRow[j], 0, 3);
+        }
+      }
+    }
+  }
+
+  /**
+   * Applies an operation to a band of rows of the image holding black mask pixels and copies the
+   * result into the output. Only the bounding box of the spans of the band, grown by the halo of
+   * the operation, is operated on; every pixel the operation reads for a masked pixel lies in it,
+   * so the masked pixels come out exactly as if the whole image had been operated on.
+   *
+   * @param operation  The operation to apply.
+   * @param inputImage The original image.
+   * @param mask       The compiled mask.
+   * @param first      The first row of the band.
+   * @param last       The last row of the band.
+   * @param halo       The halo of the operation.
+   * @param outputRGB  The output image.
+   */
+  private static void operateBand(Function<ImageData, int[][][]> operation, ImageData inputImage,
+      CompiledMask mask, int first, int last, int halo, int[][][] outputRGB) {
+    int left = Integer.MAX_VALUE;
+    int right = 0;
+    for (int i = first; i <= last; i++) {
+      if (!mask.isEmpty(i)) {
+        left = Math.min(left, mask.spanStart(mask.firstSpan(i)));
+        right = Math.max(right, mask.spanEnd(mask.firstSpan(i + 1) - 1));
+      }
+    }
+    int top = Math.max(0, first - halo);
+    int bottom = Math.min(inputImage.getHeight(), last + halo + 1);
+    left = Math.max(0, left - halo);
+    right = Math.min(inputImage.getWidth(), right + halo);
+
+    int[][][] bandRGB = new int[bottom - top][][];
+    for (int i = top; i < bottom; i++) {
+      bandRGB[i - top] = Arrays.copyOfRange(inputImage.getRgb()[i], left, right);
+    }
+    ImageData band = new ImageData(inputImage.getName(), bottom - top, right - left,
+        inputImage.getChannels(), bandRGB);
+    copySpans(operation.apply(band), mask, first, last, top, left, outputRGB);
+  }
+
   /**
    * Applies an image operation (such as blur, sharpen, etc.) to an image, but only to the parts of
    * the image specified by a mask. The mask is used to determine which pixels of the input image
-   * are affected by the operation.
+   * are affected by the operation. The mask is compiled into the spans of its black pixels once and
+   * cached with the mask image. Operations that compute a pixel from its neighbourhood only are
+   * evaluated just around those spans: rows with black pixels are grouped into bands, and each band
+   * is operated on within the bounding box of its spans grown by the radius of the operation, so
+   * the work scales with the masked area rather than the image area. Bands are at most
+   * {@value #MAX_BAND_ROWS} rows high and cover disjoint rows of the output, so they are operated
+   * on and copied in parallel. Operations that depend on the whole image are applied to all of it,
+   * and its masked spans are then copied in parallel bands of rows.
    *
    * @param operationType The type of operation to apply (e.g., blur, sharpen).
    * @param inputImage    The original image to apply the operation to.
@@ -115,12 +205,10 @@ public class ImageOperationsV3 extends ImageOperationsV2 {
    *                                  match.
    */
   int[][][] masking(String operationType, ImageData inputImage, ImageData maskedImage) {
-    int[][][] inputRGB = cloneMatrix(inputImage.getRgb());
     int heightRGB = inputImage.getHeight();
     int widthRGB = inputImage.getWidth();
     int channels = inputImage.getChannels();
 
-    int[][][] maskedRGB = cloneMatrix(maskedImage.getRgb());
     int maskHeight = maskedImage.getHeight();
     int maskWidth = maskedImage.getWidth();
     int maskChannels = maskedImage.getChannels();
@@ -132,19 +220,38 @@ public class ImageOperationsV3 extends ImageOperationsV2 {
 
     Function<ImageData, int[][][]> operation = getImageDataFunction(operationType, new int[0]);
 
-    int[][][] outputRGB = cloneMatrix(inputRGB);
-    int[][][] operatedRGB = operation.apply(inputImage);
+    int[][][] outputRGB = cloneMatrix(inputImage.getRgb());
+    CompiledMask mask = maskedImage.getCompiledMask();
+    int halo = operationHalo(operationType);
+    if (halo < 0) {
+      int[][][] operatedRGB = operation.apply(inputImage);
+      IntStream.range(0, (heightRGB + MAX_BAND_ROWS - 1) / MAX_BAND_ROWS).parallel()
+          .forEach(band -> copySpans(operatedRGB, mask, band * MAX_BAND_ROWS,
+              Math.min(heightRGB, (band + 1) * MAX_BAND_ROWS) - 1, 0, 0, outputRGB));
+      return outputRGB;
+    }
 
-    for (int i = 0; i < heightRGB; i++) {
-      for (int j = 0; j < widthRGB; j++) {
-        if (maskedRGB[i][j][0] == 0 &&
-            maskedRGB[i][j][1] == 0 && maskedRGB[i][j][2] == 0) {
-          outputRGB[i][j][0] = operatedRGB[i][j][0];
-          outputRGB[i][j][1] = operatedRGB[i][j][1];
-          outputRGB[i][j][2] = operatedRGB[i][j][2];
+    List<int[]> bands = new ArrayList<>();
+    int row = 0;
+    while (row < heightRGB) {
+      if (mask.isEmpty(row)) {
+        row++;
+        continue;
+      }
+      // Rows closer than twice the halo share halo rows, so they are operated on together, up to
+      // the band height that keeps the bands small enough to spread over the processors.
+      int last = row;
+      for (int next = row + 1; next < heightRGB && next - last <= 2 * halo + 1
+          && next - row < MAX_BAND_ROWS; next++) {
+        if (!mask.isEmpty(next)) {
+          last = next;
         }
       }
+      bands.add(new int[]{row, last});
+      row = last + 1;
     }
+    bands.parallelStream().forEach(band ->
+        operateBand(operation, inputImage, mask, band[0], band[1], halo, outputRGB));
     return outputRGB;
   }
 
@@ -0,0 +1,350 @@
+package model;
+
+import static utils.MyUtils.clamp;
+import static utils.MyUtils.cloneMatrix;
+
+import java.util.Arrays;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * A class that provides the image operations added in the fourth version of the model. It extends
+ * ImageOperationsV3 and adds variants of the existing operations that trade unneeded work for
+ * speed, such as reconstructing a compressed image at a reduced resolution.
+ */
+public class ImageOperationsV4 extends ImageOperationsV3 {
+
+  /**
+   * Compresses the input image and reconstructs it at a reduced resolution. Clamps each color
+   * channel value to ensure it remains within the valid range after compression.
+   *
+   * @param inputImage The image to be compressed.
+   * @param percentage The compression percentage (0-100).
+   * @param scale      The factor by which the result is smaller, one of 1, 2, 4 or 8.
+   * @return A 3D array representing the compressed image.
+   * @throws IllegalArgumentException if the scale is not one of the supported factors.
+   */
+  int[][][] imageCompression(ImageData inputImage, int percentage, int scale) {
+    if (scale != 1 && scale != 2 && scale != 4 && scale != 8) {
+      throw new IllegalArgumentException("Scale must be 1, 2, 4 or 8");
+    }
+    int[][][] rgb = cloneMatrix(inputImage.getRgb());
+    return clampMatrix((new ImageCompression(rgb, percentage, scale, false)).getMatrix());
+  }
+
+  /**
+   * Compresses the input image using the reversible integer Haar transform and reconstructs it at
+   * the given resolution. With a percentage of 0 the result at full scale is exactly the input.
+   *
+   * @param inputImage The image to be compressed.
+   * @param percentage The compression percentage (0-100).
+   * @param scale      The factor by which the result is smaller, one of 1, 2, 4 or 8.
+   * @return A 3D array representing the compressed image.
+   * @throws IllegalArgumentException if the scale is not one of the supported factors.
+   */
+  int[][][] integerCompression(ImageData inputImage, int percentage, int scale) {
+    if (scale != 1 && scale != 2 && scale != 4 && scale != 8) {
+      throw new IllegalArgumentException("Scale must be 1, 2, 4 or 8");
+    }
+    int[][][] rgb = cloneMatrix(inputImage.getRgb());
+    return clampMatrix((new ImageCompression(rgb, percentage, scale, true)).getMatrix());
+  }
+
+  /**
+   * Compresses the input image in independent square blocks, which bounds the memory used by the
+   * wavelet transform to a block per thread and lets the blocks be compressed in parallel. Clamps
+   * each color channel value to ensure it remains within the valid range after compression.
+   *
+   * @param inputImage      The image to be compressed.
+   * @param percentage      The compression percentage (0-100).
+   * @param blockSize       The side of the blocks, a power of two between 8 and 4096.
+   * @param globalThreshold True to use one threshold per channel for the whole image, false to
+   *                        choose a threshold for each block.
+   * @return A 3D array representing the compressed image.
+   * @throws IllegalArgumentException if the block size is not supported.
+   */
+  int[][][] blockCompression(ImageData inputImage, int percentage, int blockSize,
+      boolean globalThreshold) {
+    if (blockSize < 8 || blockSize > 4096 || Integer.bitCount(blockSize) != 1) {
+      throw new IllegalArgumentException("Block size must be a power of two between 8 and 4096");
+    }
+    int[][][] rgb = cloneMatrix(inputImage.getRgb());
+    return clampMatrix(
+        (new BlockImageCompression(rgb, percentage, blockSize, globalThreshold)).getMatrix());
+  }
+
+  /**
+   * Checks that a rectangular region lies within the image and is not empty.
+   *
+   * @param inputImage the image holding the region.
+   * @param x          the first column of the region.
+   * @param y          the first row of the region.
+   * @param width      the number of columns of the region.
+   * @param height     the number of rows of the region.
+   * @throws IllegalArgumentException if the region is empty or exceeds the image.
+   */
+  private void validateRegion(ImageData inputImage, int x, int y, int width, int height) {
+    if (x < 0 || y < 0 || width <= 0 || height <= 0
+        || x + width > inputImage.getWidth() || y + height > inputImage.getHeight()) {
+      throw new IllegalArgumentException("Region must lie within the image");
+    }
+  }
+
+  /**
+   * Returns the histograms of a rectangular region of the image, answered from the tile index of
+   * the image.
+   *
+   * @param inputImage The image holding the region.
+   * @param x          The first column of the region.
+   * @param y          The first row of the region.
+   * @param width      The number of columns of the region.
+   * @param height     The number of rows of the region.
+   * @return the frequency of every intensity in the region, indexed by channel and then intensity.
+   * @throws IllegalArgumentException if the region is empty or exceeds the image.
+   */
+  int[][] regionFrequencies(ImageData inputImage, int x, int y, int width, int height) {
+    this.validateRegion(inputImage, x, y, width, height);
+    return inputImage.getHistogram(x, y, width, height);
+  }
+
+  /**
+   * Generates a normalized histogram representation of a rectangular region of the image.
+   *
+   * @param inputImage The image holding the region.
+   * @param x          The first column of the region.
+   * @param y          The first row of the region.
+   * @param width      The number of columns of the region.
+   * @param height     The number of rows of the region.
+   * @return A 3D array representing the normalized histogram of the region.
+   * @throws IllegalArgumentException if the region is empty or exceeds the image.
+   */
+  int[][][] regionHistogram(ImageData inputImage, int x, int y, int width, int height) {
+    int[][] frequencies = this.regionFrequencies(inputImage, x, y, width, height);
+    return (new NormalizedHistogram(inputImage.getRgb(), frequencies)).getMatrix();
+  }
+
+  /**
+   * Applies color correction to the whole image using the histogram peaks of a rectangular region
+   * of it, such as an area known to be neutral.
+   *
+   * @param inputImage The image to correct.
+   * @param x          The first column of the region.
+   * @param y          The first row of the region.
+   * @param width      The number of columns of the region.
+   * @param height     The number of rows of the region.
+   * @return A 3D array representing the color-corrected image.
+   * @throws IllegalArgumentException if the region is empty or exceeds the image.
+   */
+  int[][][] regionColorCorrection(ImageData inputImage, int x, int y, int width, int height) {
+    int[][] frequencies = this.regionFrequencies(inputImage, x, y, width, height);
+    return this.colorCorrectionMapping(frequencies).apply(inputImage);
+  }
+
+  /**
+   * Downscales an image to the specified height and width by area averaging. Every output pixel is
+   * the average of the source pixels under its footprint, source pixels that straddle the edge of a
+   * footprint counting with the fraction that lies inside it. Unlike bilinear sampling, which reads
+   * four source pixels per output pixel, every source pixel contributes, so large reductions are
+   * anti-aliased without blurring the image first. Positions are measured in units of
+   * {@code 1 / (height * width)} of a source pixel so that all weights are integers and the sums
+   * are exact; output rows are computed in parallel and every source row is read at most twice.
+   *
+   * @param inputImage The original image to be downscaled.
+   * @param height     The target height for the downscaled image.
+   * @param width      The target width for the downscaled image.
+   * @return A 3D array representing the downscaled image in RGB format.
+   * @throws IllegalArgumentException if the provided height or width is invalid (i.e., non-positive
+   *                                  or larger than the original image dimensions).
+   */
+  int[][][] areaDownscale(ImageData inputImage, int height, int width) {
+    int[][][] inputRGB = inputImage.getRgb();
+    int heightRGB = inputImage.getHeight();
+    int widthRGB = inputImage.getWidth();
+
+    if (height <= 0 || width <= 0 || height > heightRGB || width > widthRGB) {
+      throw new IllegalArgumentException("Height and width should be within 0 and "
+          + "image height and image width respectively");
+    }
+
+    // Source column c covers [c * width, (c + 1) * width) and output column j covers
+    // [j * widthRGB, (j + 1) * widthRGB), so a source column overlaps at most two output columns.
+    int[] columnTargets = new int[widthRGB];
+    int[] columnWeights = new int[widthRGB];
+    for (int c = 0; c < widthRGB; c++) {
+      long start = (long) c * width;
+      int target = (int) (start / widthRGB);
+      columnTargets[c] = target;
+      columnWeights[c] = (int) (Math.min(start + width, (long) (target + 1) * widthRGB) - start);
+    }
+    long area = (long) heightRGB * widthRGB;
+
+    int[][][] outputRGB = new int[height][width][3];
+    IntStream.range(0, height).parallel().forEach(i -> {
+      long[] line = new long[width * 3];
+      long[] sums = new long[width * 3];
+      long top = (long) i * heightRGB;
+      long bottom = top + heightRGB;
+      int firstRow = (int) (top / height);
+      int lastRow = (int) ((bottom - 1) / height);
+      for (int r = firstRow; r <= lastRow; r++) {
+        long rowWeight =
+            Math.min(bottom, (long) (r + 1) * height) - Math.max(top, (long) r * height);
+        Arrays.fill(line, 0);
+        int[][] row = inputRGB[r];
+        for (int c = 0; c < widthRGB; c++) {
+          int[] pixel = row[c];
+          int index = columnTargets[c] * 3;
+          int weight = columnWeights[c];
+          line[index] += (long) weight * pixel[0];
+          line[index + 1] += (long) weight * pixel[1];
+          line[index + 2] += (long) weight * pixel[2];
+          if (weight < width) {
+            int rest = width - weight;
+            line[index + 3] += (long) rest * pixel[0];
+            line[index + 4] += (long) rest * pixel[1];
+            line[index + 5] += (long) rest * pixel[2];
+          }
+        }
+        for (int k = 0; k < line.length; k++) {
+          sums[k] += rowWeight * line[k];
+        }
+      }
+      for (int j = 0; j < width; j++) {
+        for (int k = 0; k < 3; k++) {
+          outputRGB[i][j][k] = (int) ((sums[j * 3 + k] + area / 2) / area);
+        }
+      }
+    });
+    return outputRGB;
+  }
+
+  /**
+   * Resizes an image to the specified height and width with a bicubic or a Lanczos-3 filter. The
+   * target may be larger or smaller than the source in either dimension. The filter is separable,
+   * so the rows are resampled to the target width first and the columns of that result to the
+   * target height next, each pass in parallel. The filter weights of both axes come from cached
+   * filter banks, so they are computed once per pair of sizes.
+   *
+   * @param inputImage The image to resize.
+   * @param height     The target height.
+   * @param width      The target width.
+   * @param filter     The resampling filter, "bicubic" or "lanczos".
+   * @return A 3D array representing the resized image in RGB format.
+   * @throws IllegalArgumentException if the height or width is not positive or the filter is not
+   *                                  supported.
+   */
+  int[][][] resize(ImageData inputImage, int height, int width, String filter) {
+    if (height <= 0 || width <= 0) {
+      throw new IllegalArgumentException("Height and width should be positive");
+    }
+    int[][][] inputRGB = inputImage.getRgb();
+    int heightRGB = inputImage.getHeight();
+    int widthRGB = inputImage.getWidth();
+    FilterBank columns = FilterBank.forSizes(filter, widthRGB, width);
+    FilterBank rows = FilterBank.forSizes(filter, heightRGB, height);
+
+    double[][] horizontal = new double[heightRGB][width * 3];
+    int columnTaps = columns.getTaps();
+    int[] columnIndices = columns.getIndices();
+    double[] columnWeights = columns.getWeights();
+    IntStream.range(0, heightRGB).parallel().forEach(i -> {
+      int[][] source = inputRGB[i];
+      double[] target = horizontal[i];
+      for (int j = 0; j < width; j++) {
+        double red = 0;
+        double green = 0;
+        double blue = 0;
+        for (int t = j * columnTaps; t < (j + 1) * columnTaps; t++) {
+          int[] pixel = source[columnIndices[t]];
+          double weight = columnWeights[t];
+          red += weight * pixel[0];
+          green += weight * pixel[1];
+          blue += weight * pixel[2];
+        }
+        target[j * 3] = red;
+        target[j * 3 + 1] = green;
+        target[j * 3 + 2] = blue;
+      }
+    });
+
+    int[][][] outputRGB = new int[height][width][3];
+    int rowTaps = rows.getTaps();
+    int[] rowIndices = rows.getIndices();
+    double[] rowWeights = rows.getWeights();
+    IntStream.range(0, height).parallel().forEach(i -> {
+      double[] sums = new double[width * 3];
+      for (int t = i * rowTaps; t < (i + 1) * rowTaps; t++) {
+        double[] source = horizontal[rowIndices[t]];
+        double weight = rowWeights[t];
+        for (int k = 0; k < sums.length; k++) {
+          sums[k] += weight * source[k];
+        }
+      }
+      for (int j = 0; j < width; j++) {
+        for (int k = 0; k < 3; k++) {
+          outputRGB[i][j][k] = clamp((int) Math.round(sums[j * 3 + k]));
+        }
+      }
+    });
+    return outputRGB;
+  }
+
+  /**
+   * Applies an operation available for split preview to the whole image, for a preview to show
+   * part of.
+   *
+   * @param operationName The name of the image operation.
+   * @param inputImage    The image to process.
+   * @param params        Parameters for specific operations.
+   * @return A 3D array representing the image with the operation applied.
+   * @throws IllegalArgumentException if the operation is not available for split preview.
+   */
+  int[][][] previewOperation(String operationName, ImageData inputImage, int[] params) {
+    Function<ImageData, int[][][]> operation = getImageDataFunction(operationName, params);
+    if (operation == null) {
+      throw new IllegalArgumentException(
+          "Unsupported operation for split preview: " + operationName);
+    }
+    return operation.apply(inputImage);
+  }
+
+  /**
+   * Erodes, dilates, opens or closes the selected region of a mask image with a rectangular
+   * structuring element. The mask is read in its compiled form, which is cached with the mask
+   * image.
+   *
+   * @param operation     The operation, "erode", "dilate", "open" or "close".
+   * @param maskImage     The mask image, whose black pixels are selected.
+   * @param elementHeight The height of the structuring element.
+   * @param elementWidth  The width of the structuring element.
+   * @return A 3D array representing the resulting mask, black where selected and white elsewhere.
+   * @throws IllegalArgumentException if the operation is not supported or the structuring element
+   *                                  is empty.
+   */
+  int[][][] maskMorphology(String operation, ImageData maskImage, int elementHeight,
+      int elementWidth) {
+    if (elementHeight <= 0 || elementWidth <= 0) {
+      throw new IllegalArgumentException("Structuring element size must be positive");
+    }
+    return new MaskMorphology(maskImage.getCompiledMask())
+        .apply(operation, elementHeight, elementWidth);
+  }
+
+  /**
+   * Clamps every value of the matrix to the valid range of a color channel.
+   *
+   * @param outputRGB the matrix to clamp in place.
+   * @return the clamped matrix.
+   */
+  private int[][][] clampMatrix(int[][][] outputRGB) {
+    for (int i = 0; i < outputRGB.length; i++) {
+      for (int j = 0; j < outputRGB[0].length; j++) {
+        for (int k = 0; k < outputRGB[0][0].length; k++) {
+          outputRGB[i][j][k] = clamp(outputRGB[i][j][k]);
+        }
+      }
+    }
+    return outputRGB;
+  }
+
+}
@@ -0,0 +1,134 @@
+package model;
+
+import java.lang.ref.SoftReference;
+import java.util.stream.IntStream;
+
+/**
+ * The ImagePyramid class holds the power-of-two reductions (mipmaps) of an image. Level 0 is the
+ * image itself and every further level halves the height and width of the level above it by
+ * averaging blocks of 2x2 pixels, rounding odd sizes up. Levels are built on first use, each from
+ * the level directly above it, and are only softly referenced, so the garbage collector may evict
+ * them under memory pressure and they are then rebuilt on the next request.
+ */
+class ImagePyramid {
+
+  private final ImageData image;
+  private final SoftReference<ImageData>[] levels;
+
+  /**
+   * Constructs an empty pyramid over the given image. No level besides the image itself is built.
+   *
+   * @param image the full resolution image.
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  ImagePyramid(ImageData image) {
+    this.image = image;
+    int count = 1;
+    while ((image.getHeight() >> count) > 0 && (image.getWidth() >> count) > 0) {
+      count++;
+    }
+    this.levels = new SoftReference[count];
+  }
+
+  /**
+   * Returns the number of levels of the pyramid, the image itself included. The last level has a
+   * height or a width of one pixel.
+   *
+   * @return the number of levels.
+   */
+  int getLevelCount() {
+    return this.levels.length;
+  }
+
+  /**
+   * Returns the deepest level that is still at least as large as the given size in both
+   * dimensions, which is the cheapest level to resample to that size from.
+   *
+   * @param height the target height.
+   * @param width  the target width.
+   * @return the index of the level.
+   */
+  int levelFor(int height, int width) {
+    int level = 0;
+    while (level + 1 < this.levels.length
+        && reduce(this.image.getHeight(), level + 1) >= height
+        && reduce(this.image.getWidth(), level + 1) >= width) {
+      level++;
+    }
+    return level;
+  }
+
+  /**
+   * Returns a level of the pyramid, building it and any missing level above it first.
+   *
+   * @param level the index of the level, 0 being the image itself.
+   * @return the image of the level.
+   * @throws IllegalArgumentException if the level does not exist.
+   */
+  synchronized ImageData getLevel(int level) {
+    if (level < 0 || level >= this.levels.length) {
+      throw new IllegalArgumentException("Pyramid level does not exist");
+    }
+    if (level == 0) {
+      return this.image;
+    }
+    ImageData cached = this.levels[level] == null ? null : this.levels[level].get();
+    if (cached == null) {
+      cached = halve(this.getLevel(level - 1));
+      this.levels[level] = new SoftReference<>(cached);
+    }
+    return cached;
+  }
+
+  /**
+   * Returns the size of an axis of the image at a level, the size halved once per level and
+   * rounded up.
+   *
+   * @param size  the size of the axis of the image.
+   * @param level the index of the level.
+   * @return the size of the axis at that level.
+   */
+  private static int reduce(int size, int level) {
+    return (size + (1 << level) - 1) >> level;
+  }
+
+  /**
+   * Halves an image by averaging every block of 2x2 pixels, in parallel across output rows. The
+   * blocks along an odd edge only contain the pixels that exist.
+   *
+   * @param source the image to halve.
+   * @return the halved image.
+   */
+  private static ImageData halve(ImageData source) {
+    int[][][] rgb = source.getRgb();
+    int sourceHeight = source.getHeight();
+    int sourceWidth = source.getWidth();
+    int height = reduce(sourceHeight, 1);
+    int width = reduce(sourceWidth, 1);
+    int[][][] output = new int[height][width][3];
+    IntStream.range(0, height).parallel().forEach(i -> {
+      int[][] top = rgb[2 * i];
+      int[][] bottom = rgb[Math.min(2 * i + 1, sourceHeight - 1)];
+      int rows = 2 * i + 1 < sourceHeight ? 2 : 1;
+      for (int j = 0; j < width; j++) {
+        int left = 2 * j;
+        int right = Math.min(left + 1, sourceWidth - 1);
+        int count = rows * (right > left ? 2 : 1);
+        for (int k = 0; k < 3; k++) {
+          int sum = top[left][k];
+          if (right > left) {
+            sum += top[right][k];
+          }
+          if (rows == 2) {
+            sum += bottom[left][k];
+            if (right > left) {
+              sum += bottom[right][k];
+            }
+          }
+          output[i][j][k] = (sum + count / 2) / count;
+        }
+      }
+    });
+    return new ImageData(source.getName(), height, width, source.getChannels(), output);
+  }
+}
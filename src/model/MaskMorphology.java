@@ -0,0 +1,171 @@
+package model;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * The MaskMorphology class grows and shrinks the selected region of a mask with rectangular
+ * structuring elements. It works on the compiled form of the mask, whose spans are expanded into
+ * one byte per pixel (1 for selected), and produces a new mask image, black where selected and
+ * white elsewhere.
+ *
+ * <p>Erosion keeps a pixel selected only if the whole rectangle around it is selected, dilation
+ * selects it if any pixel of the rectangle is selected; opening is an erosion followed by a
+ * dilation and closing the reverse. Both are the minimum and maximum over a rectangle, which is
+ * separable into a pass over the rows and a pass over the columns. Each pass uses the van Herk /
+ * Gil-Werman algorithm: the line is cut into blocks as long as the window, running extremes are
+ * taken from the start and from the end of every block, and the extreme of any window is then the
+ * extreme of one suffix and one prefix value. That costs three comparisons per pixel whatever the
+ * size of the rectangle. Rows, then columns, are processed in parallel. Pixels outside the image
+ * count as selected for erosion and as not selected for dilation, so the image border neither
+ * shrinks nor grows the region.
+ *
+ * <p>The element of an even size has no centre pixel; it extends one pixel further after the
+ * centre than before it. Dilation uses the reflected element, extending further before the centre,
+ * which makes opening select nothing outside the mask and closing keep everything inside it, and
+ * keeps both from shifting the region.
+ */
+class MaskMorphology {
+
+  private final int height;
+  private final int width;
+  private final byte[][] selected;
+
+  /**
+   * Constructs the operation on the given compiled mask.
+   *
+   * @param mask the compiled mask.
+   */
+  MaskMorphology(CompiledMask mask) {
+    this.height = mask.getHeight();
+    this.width = mask.getWidth();
+    this.selected = new byte[this.height][this.width];
+    for (int i = 0; i < this.height; i++) {
+      for (int span = mask.firstSpan(i); span < mask.firstSpan(i + 1); span++) {
+        for (int j = mask.spanStart(span); j < mask.spanEnd(span); j++) {
+          this.selected[i][j] = 1;
+        }
+      }
+    }
+  }
+
+  /**
+   * Applies a morphological operation and returns the resulting mask image.
+   *
+   * @param operation     "erode", "dilate", "open" or "close".
+   * @param elementHeight the height of the rectangular structuring element.
+   * @param elementWidth  the width of the rectangular structuring element.
+   * @return the resulting mask as a 3D RGB array, black where selected and white elsewhere.
+   * @throws IllegalArgumentException if the operation is not supported.
+   */
+  int[][][] apply(String operation, int elementHeight, int elementWidth) {
+    byte[][] result;
+    if (operation.equals("erode")) {
+      result = this.filter(this.selected, false, elementHeight, elementWidth);
+    } else if (operation.equals("dilate")) {
+      result = this.filter(this.selected, true, elementHeight, elementWidth);
+    } else if (operation.equals("open")) {
+      result = this.filter(this.filter(this.selected, false, elementHeight, elementWidth), true,
+          elementHeight, elementWidth);
+    } else if (operation.equals("close")) {
+      result = this.filter(this.filter(this.selected, true, elementHeight, elementWidth), false,
+          elementHeight, elementWidth);
+    } else {
+      throw new IllegalArgumentException("Unsupported morphological operation: " + operation);
+    }
+
+    int[][][] outputRGB = new int[this.height][this.width][3];
+    for (int i = 0; i < this.height; i++) {
+      for (int j = 0; j < this.width; j++) {
+        if (result[i][j] == 0) {
+          outputRGB[i][j][0] = 255;
+          outputRGB[i][j][1] = 255;
+          outputRGB[i][j][2] = 255;
+        }
+      }
+    }
+    return outputRGB;
+  }
+
+  /**
+   * Takes the minimum or maximum of every rectangle of the grid, first along the rows and then
+   * along the columns.
+   *
+   * @param grid          the selection, one byte per pixel.
+   * @param maximum       true for the maximum (dilation), false for the minimum (erosion).
+   * @param elementHeight the height of the rectangle.
+   * @param elementWidth  the width of the rectangle.
+   * @return the filtered selection.
+   */
+  private byte[][] filter(byte[][] grid, boolean maximum, int elementHeight, int elementWidth) {
+    byte[][] rows = new byte[this.height][this.width];
+    IntStream.range(0, this.height).parallel().forEach(i ->
+        extremes(grid[i], rows[i], this.width, elementWidth, maximum));
+
+    byte[][] output = new byte[this.height][this.width];
+    IntStream.range(0, this.width).parallel().forEach(j -> {
+      byte[] column = new byte[this.height];
+      byte[] filtered = new byte[this.height];
+      for (int i = 0; i < this.height; i++) {
+        column[i] = rows[i][j];
+      }
+      extremes(column, filtered, this.height, elementHeight, maximum);
+      for (int i = 0; i < this.height; i++) {
+        output[i][j] = filtered[i];
+      }
+    });
+    return output;
+  }
+
+  /**
+   * Computes the minimum or maximum of every window of a line with the van Herk / Gil-Werman
+   * algorithm. For the minimum the window of position {@code x} spans {@code (size - 1) / 2} values
+   * before it and {@code size / 2} after it; the maximum uses the reflected window, {@code size / 2}
+   * values before and {@code (size - 1) / 2} after, so that dilation is by the reflected element.
+   * The two only differ for even sizes.
+   *
+   * @param line    the values of the line.
+   * @param output  receives the extreme of the window of every position.
+   * @param length  the length of the line.
+   * @param size    the length of the window.
+   * @param maximum true for the maximum, false for the minimum.
+   */
+  private static void extremes(byte[] line, byte[] output, int length, int size,
+      boolean maximum) {
+    int before = maximum ? size / 2 : (size - 1) / 2;
+    int padded = (length + size - 1 + size - 1) / size * size;
+    byte identity = maximum ? (byte) 0 : (byte) 1;
+    byte[] values = new byte[padded];
+    Arrays.fill(values, identity);
+    System.arraycopy(line, 0, values, before, length);
+
+    byte[] prefix = new byte[padded];
+    byte[] suffix = new byte[padded];
+    for (int start = 0; start < padded; start += size) {
+      prefix[start] = values[start];
+      for (int x = start + 1; x < start + size; x++) {
+        prefix[x] = pick(prefix[x - 1], values[x], maximum);
+      }
+      int end = start + size - 1;
+      suffix[end] = values[end];
+      for (int x = end - 1; x >= start; x--) {
+        suffix[x] = pick(suffix[x + 1], values[x], maximum);
+      }
+    }
+    for (int x = 0; x < length; x++) {
+      output[x] = pick(suffix[x], prefix[x + size - 1], maximum);
+    }
+  }
+
+  /**
+   * Returns the larger or the smaller of two values.
+   *
+   * @param first   the first value.
+   * @param second  the second value.
+   * @param maximum true for the larger value, false for the smaller one.
+   * @return the chosen value.
+   */
+  private static byte pick(byte first, byte second, boolean maximum) {
+    return maximum == (first > second) ? first : second;
+  }
+}
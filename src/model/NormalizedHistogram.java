@@ -1,6 +1,6 @@
 package model;
 
-import utils.MyUtils;
+import utils.RgbHistogram;
 
 /**
  * The NormalizedHistogram class processes an image represented by a 3D RGB array, computes
@@ -12,13 +12,28 @@ import utils.MyUtils;
  */
 class NormalizedHistogram extends AbstractSpecificOps {
 
+  private final int[][] frequencies;
+
   /**
    * Constructs a NormalizedHistogram instance with the given image data.
    *
    * @param inputRGB The input image represented as a 3D RGB array.
    */
   NormalizedHistogram(int[][][] inputRGB) {
+    this(inputRGB, null);
+  }
+
+  /**
+   * Constructs a NormalizedHistogram instance with the given image data and its already computed
+   * channel frequencies, which are then not computed again.
+   *
+   * @param inputRGB    The input image represented as a 3D RGB array.
+   * @param frequencies The frequencies of the image, indexed by channel and then intensity, or null
+   *                    to compute them from the image.
+   */
+  NormalizedHistogram(int[][][] inputRGB, int[][] frequencies) {
     super(inputRGB);
+    this.frequencies = frequencies;
   }
 
   /**
@@ -105,9 +120,11 @@ class NormalizedHistogram extends AbstractSpecificOps {
    */
   private int[][][] pixelPreprocessing(int[][][] inputRGB, int height, int width) {
 
-    int[] redFrequency = MyUtils.calculateFrequency(inputRGB, height, width, 0);
-    int[] greenFrequency = MyUtils.calculateFrequency(inputRGB, height, width, 1);
-    int[] blueFrequency = MyUtils.calculateFrequency(inputRGB, height, width, 2);
+    int[][] frequencies = this.frequencies != null ? this.frequencies
+        : RgbHistogram.calculateFrequencies(inputRGB, height, width);
+    int[] redFrequency = frequencies[0];
+    int[] greenFrequency = frequencies[1];
+    int[] blueFrequency = frequencies[2];
 
     int maxRGB = Math.max(
         Math.max(this.maxFrequency(redFrequency), this.maxFrequency(greenFrequency)),
@@ -0,0 +1,100 @@
+package model;
+
+import java.util.function.IntBinaryOperator;
+
+/**
+ * The PointMapping class describes an operation in which every output channel value depends only on
+ * a single input channel value of the same pixel, such as brightening, level adjustment, color
+ * correction or extracting a red, green or blue component. For every output channel it holds the
+ * input channel it reads and a 256 entry lookup table. Applying the mapping to an image is a table
+ * lookup per value, and because the mapping is known the histogram of the output follows from the
+ * histogram of the input in O(256) per channel, without reading any pixel.
+ */
+class PointMapping {
+
+  private final int[] sources;
+  private final int[][] tables;
+
+  /**
+   * Constructs a mapping from the input channel and lookup table of every output channel.
+   *
+   * @param sources the input channel read by each output channel.
+   * @param tables  the lookup table of each output channel, 256 entries long.
+   */
+  private PointMapping(int[] sources, int[][] tables) {
+    this.sources = sources;
+    this.tables = tables;
+  }
+
+  /**
+   * Creates a mapping in which every channel is mapped to itself through the given function.
+   *
+   * @param function the function receiving the channel and the input value and returning the
+   *                 output value, which must be within 0 and 255.
+   * @return the mapping.
+   */
+  static PointMapping perChannel(IntBinaryOperator function) {
+    int[][] tables = new int[3][256];
+    for (int k = 0; k < 3; k++) {
+      for (int v = 0; v < 256; v++) {
+        tables[k][v] = function.applyAsInt(k, v);
+      }
+    }
+    return new PointMapping(new int[]{0, 1, 2}, tables);
+  }
+
+  /**
+   * Creates a mapping that copies one input channel into all three output channels.
+   *
+   * @param channel the input channel to copy.
+   * @return the mapping.
+   */
+  static PointMapping component(int channel) {
+    int[] identity = new int[256];
+    for (int v = 0; v < 256; v++) {
+      identity[v] = v;
+    }
+    return new PointMapping(new int[]{channel, channel, channel},
+        new int[][]{identity, identity, identity});
+  }
+
+  /**
+   * Applies the mapping to every pixel of the image.
+   *
+   * @param inputImage the image to map.
+   * @return the 3D RGB array of the mapped image.
+   */
+  int[][][] apply(ImageData inputImage) {
+    int[][][] inputRGB = inputImage.getRgb();
+    int height = inputImage.getHeight();
+    int width = inputImage.getWidth();
+    int[][][] outputRGB = new int[height][width][3];
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        int[] pixel = inputRGB[i][j];
+        int[] mapped = outputRGB[i][j];
+        for (int k = 0; k < 3; k++) {
+          mapped[k] = tables[k][pixel[sources[k]]];
+        }
+      }
+    }
+    return outputRGB;
+  }
+
+  /**
+   * Derives the histogram of the mapped image from the histogram of the input image.
+   *
+   * @param histogram the histogram of the input image, indexed by channel and then intensity.
+   * @return the histogram of the mapped image.
+   */
+  int[][] histogram(int[][] histogram) {
+    int[][] mapped = new int[3][256];
+    for (int k = 0; k < 3; k++) {
+      int[] source = histogram[sources[k]];
+      for (int v = 0; v < 256; v++) {
+        mapped[k][tables[k][v]] += source[v];
+      }
+    }
+    return mapped;
+  }
+}
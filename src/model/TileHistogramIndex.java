@@ -0,0 +1,118 @@
+package model;
+
+import java.util.stream.IntStream;
+
+/**
+ * The TileHistogramIndex class answers histogram queries over rectangular regions of an image
+ * without reading every pixel of the region. The image is cut into square tiles and the red, green
+ * and blue histograms of every tile are stored as running sums along each row of tiles, so the
+ * histogram of the tiles a region fully covers takes one subtraction per row of tiles. Only the
+ * strips of pixels along the edges of the region that do not fill a whole tile are read directly.
+ */
+class TileHistogramIndex {
+
+  static final int TILE_SIZE = 64;
+  private static final int BINS = 3 * 256;
+
+  private final int[][][] rgb;
+  private final int tilesAcross;
+  private final int[][][] rowSums;
+
+  /**
+   * Builds the index of the given image. The tiles are counted in parallel, one row of tiles per
+   * task.
+   *
+   * @param rgb    the 3D RGB matrix of the image.
+   * @param height the height of the image.
+   * @param width  the width of the image.
+   */
+  TileHistogramIndex(int[][][] rgb, int height, int width) {
+    this.rgb = rgb;
+    this.tilesAcross = width / TILE_SIZE;
+    int tilesDown = height / TILE_SIZE;
+    this.rowSums = new int[tilesDown][][];
+    IntStream.range(0, tilesDown).parallel().forEach(this::indexRow);
+  }
+
+  /**
+   * Counts the tiles of one row of tiles and stores their running sums.
+   *
+   * @param tileRow the index of the row of tiles.
+   */
+  private void indexRow(int tileRow) {
+    int[][] sums = new int[this.tilesAcross + 1][];
+    sums[0] = new int[BINS];
+    for (int c = 0; c < this.tilesAcross; c++) {
+      int[] tile = sums[c].clone();
+      count(tile, tileRow * TILE_SIZE, c * TILE_SIZE, TILE_SIZE, TILE_SIZE);
+      sums[c + 1] = tile;
+    }
+    this.rowSums[tileRow] = sums;
+  }
+
+  /**
+   * Adds the pixels of a rectangle of the image to a flat histogram, which holds the 256 bins of
+   * the red, green and blue channels one after the other.
+   *
+   * @param bins   the flat histogram to add to.
+   * @param top    the first row of the rectangle.
+   * @param left   the first column of the rectangle.
+   * @param height the number of rows of the rectangle.
+   * @param width  the number of columns of the rectangle.
+   */
+  private void count(int[] bins, int top, int left, int height, int width) {
+    for (int i = top; i < top + height; i++) {
+      int[][] row = this.rgb[i];
+      for (int j = left; j < left + width; j++) {
+        int[] pixel = row[j];
+        bins[pixel[0]]++;
+        bins[256 + pixel[1]]++;
+        bins[512 + pixel[2]]++;
+      }
+    }
+  }
+
+  /**
+   * Returns the histograms of a rectangular region of the image. The region must lie within the
+   * image.
+   *
+   * @param x      the first column of the region.
+   * @param y      the first row of the region.
+   * @param width  the number of columns of the region.
+   * @param height the number of rows of the region.
+   * @return the frequency of every intensity in the region, indexed by channel and then intensity.
+   */
+  int[][] histogram(int x, int y, int width, int height) {
+    int firstTileRow = (y + TILE_SIZE - 1) / TILE_SIZE;
+    int lastTileRow = Math.min((y + height) / TILE_SIZE, this.rowSums.length);
+    int firstTileCol = (x + TILE_SIZE - 1) / TILE_SIZE;
+    int lastTileCol = Math.min((x + width) / TILE_SIZE, this.tilesAcross);
+
+    int[] bins = new int[BINS];
+    if (firstTileRow >= lastTileRow || firstTileCol >= lastTileCol) {
+      count(bins, y, x, height, width);
+    } else {
+      int innerTop = firstTileRow * TILE_SIZE;
+      int innerBottom = lastTileRow * TILE_SIZE;
+      int innerLeft = firstTileCol * TILE_SIZE;
+      int innerRight = lastTileCol * TILE_SIZE;
+      for (int r = firstTileRow; r < lastTileRow; r++) {
+        int[] after = this.rowSums[r][lastTileCol];
+        int[] before = this.rowSums[r][firstTileCol];
+        for (int b = 0; b < BINS; b++) {
+          bins[b] += after[b] - before[b];
+        }
+      }
+      count(bins, y, x, innerTop - y, width);
+      count(bins, innerBottom, x, y + height - innerBottom, width);
+      count(bins, innerTop, x, innerBottom - innerTop, innerLeft - x);
+      count(bins, innerTop, innerRight, innerBottom - innerTop, x + width - innerRight);
+    }
+
+    int[][] frequencies = new int[3][256];
+    for (int k = 0; k < 3; k++) {
+      System.arraycopy(bins, k * 256, frequencies[k], 0, 256);
+    }
+    return frequencies;
+  }
+}
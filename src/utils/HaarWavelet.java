@@ -0,0 +1,263 @@
+package utils;
+
+/**
+ * Utility class holding the Haar wavelet transform shared by the in-memory compression operation
+ * and the wavelet image file format. The transform works in place on square matrices whose side is
+ * a power of two, applying the orthonormal average/difference step first to every row and then to
+ * every column at each level, coarse levels ending up in the top-left corner of the matrix. Only
+ * the top-left {@code size x size} part of the matrix is touched, which lets callers reuse a larger
+ * scratch buffer for smaller blocks.
+ *
+ * <p>An integer variant, the S-transform, is provided as well. It keeps the same layout but uses
+ * the lifting steps {@code d = a - b} and {@code s = b + floor(d / 2)}, which map integers to
+ * integers and are exactly reversible, so a coefficient buffer of ints can be used and no rounding
+ * error is introduced.
+ */
+public class HaarWavelet {
+
+  private static final double ROOT_TWO = Math.sqrt(2);
+
+  /**
+   * Applies one Haar transformation step to the first {@code condition} values of a vector. The
+   * pairwise averages are written to the first half and the pairwise differences to the second
+   * half.
+   *
+   * @param vector    the values to transform in place.
+   * @param condition the length of the block being transformed.
+   * @param scratch   a scratch buffer at least {@code condition} long.
+   */
+  private static void transformStep(double[] vector, int condition, double[] scratch) {
+    int half = condition / 2;
+    for (int j = 0; j < half; j++) {
+      scratch[j] = (vector[2 * j] + vector[2 * j + 1]) / ROOT_TWO;
+      scratch[j + half] = (vector[2 * j] - vector[2 * j + 1]) / ROOT_TWO;
+    }
+    System.arraycopy(scratch, 0, vector, 0, condition);
+  }
+
+  /**
+   * Inverts one Haar transformation step on the first {@code condition} values of a vector.
+   *
+   * @param vector    the values to invert in place.
+   * @param condition the length of the block being inverted.
+   * @param scratch   a scratch buffer at least {@code condition} long.
+   */
+  private static void inversionStep(double[] vector, int condition, double[] scratch) {
+    int half = condition / 2;
+    for (int j = 0; j < half; j++) {
+      scratch[2 * j] = (vector[j] + vector[j + half]) / ROOT_TWO;
+      scratch[2 * j + 1] = (vector[j] - vector[j + half]) / ROOT_TWO;
+    }
+    System.arraycopy(scratch, 0, vector, 0, condition);
+  }
+
+  /**
+   * Applies one level of the transformation to all rows and then all columns of the matrix.
+   *
+   * @param matrix    the matrix to transform in place.
+   * @param size      the side of the square block to transform.
+   * @param condition the length of the block being transformed at this level.
+   * @param inverse   true to invert the level instead of applying it.
+   */
+  private static void level(double[][] matrix, int size, int condition, boolean inverse) {
+    double[] scratch = new double[size];
+    double[] column = new double[size];
+    for (int i = 0; i < size; i++) {
+      if (inverse) {
+        inversionStep(matrix[i], condition, scratch);
+      } else {
+        transformStep(matrix[i], condition, scratch);
+      }
+    }
+    for (int j = 0; j < size; j++) {
+      for (int i = 0; i < condition; i++) {
+        column[i] = matrix[i][j];
+      }
+      if (inverse) {
+        inversionStep(column, condition, scratch);
+      } else {
+        transformStep(column, condition, scratch);
+      }
+      for (int i = 0; i < condition; i++) {
+        matrix[i][j] = column[i];
+      }
+    }
+  }
+
+  /**
+   * Applies the full Haar wavelet transformation to the top-left {@code size x size} block of the
+   * matrix.
+   *
+   * @param matrix the matrix to transform in place.
+   * @param size   the side of the block, a power of two.
+   */
+  public static void forward(double[][] matrix, int size) {
+    for (int condition = size; condition > 1; condition /= 2) {
+      level(matrix, size, condition, false);
+    }
+  }
+
+  /**
+   * Applies the full inverse Haar wavelet transformation to the top-left {@code size x size} block
+   * of the matrix.
+   *
+   * @param matrix the matrix to invert in place.
+   * @param size   the side of the block, a power of two.
+   */
+  public static void inverse(double[][] matrix, int size) {
+    for (int condition = 2; condition <= size; condition *= 2) {
+      level(matrix, size, condition, true);
+    }
+  }
+
+  /**
+   * Reconstructs a reduced resolution approximation from a fully transformed block by running only
+   * the coarse inverse levels. After the call the top-left {@code (size >> skipLevels)} square of
+   * the matrix holds the average of every {@code 2^skipLevels x 2^skipLevels} pixel block of the
+   * original; the rest of the matrix is left untouched.
+   *
+   * @param matrix     the transformed matrix to invert in place.
+   * @param size       the side of the transformed block, a power of two.
+   * @param skipLevels the number of fine levels to leave out.
+   */
+  public static void inverse(double[][] matrix, int size, int skipLevels) {
+    int block = size >> skipLevels;
+    inverse(matrix, block);
+    if (skipLevels > 0) {
+      double scale = 1 << skipLevels;
+      for (int i = 0; i < block; i++) {
+        for (int j = 0; j < block; j++) {
+          matrix[i][j] /= scale;
+        }
+      }
+    }
+  }
+
+  /**
+   * Applies one integer lifting step to the first {@code condition} values of a vector. The floor
+   * averages are written to the first half and the differences to the second half.
+   *
+   * @param vector    the values to transform in place.
+   * @param condition the length of the block being transformed.
+   * @param scratch   a scratch buffer at least {@code condition} long.
+   */
+  private static void liftingStep(int[] vector, int condition, int[] scratch) {
+    int half = condition / 2;
+    for (int j = 0; j < half; j++) {
+      int difference = vector[2 * j] - vector[2 * j + 1];
+      scratch[j] = vector[2 * j + 1] + (difference >> 1);
+      scratch[j + half] = difference;
+    }
+    System.arraycopy(scratch, 0, vector, 0, condition);
+  }
+
+  /**
+   * Inverts one integer lifting step on the first {@code condition} values of a vector.
+   *
+   * @param vector    the values to invert in place.
+   * @param condition the length of the block being inverted.
+   * @param scratch   a scratch buffer at least {@code condition} long.
+   */
+  private static void unliftingStep(int[] vector, int condition, int[] scratch) {
+    int half = condition / 2;
+    for (int j = 0; j < half; j++) {
+      int difference = vector[j + half];
+      int second = vector[j] - (difference >> 1);
+      scratch[2 * j] = difference + second;
+      scratch[2 * j + 1] = second;
+    }
+    System.arraycopy(scratch, 0, vector, 0, condition);
+  }
+
+  /**
+   * Applies one level of the integer transformation to all rows and then all columns of the
+   * matrix, or inverts it by undoing the columns first and then the rows, which keeps the rounding
+   * of the lifting steps exactly reversible.
+   *
+   * @param matrix    the matrix to transform in place.
+   * @param condition the length of the block being transformed at this level.
+   * @param inverse   true to invert the level instead of applying it.
+   */
+  private static void integerLevel(int[][] matrix, int condition, boolean inverse) {
+    int[] scratch = new int[condition];
+    int[] column = new int[condition];
+    if (!inverse) {
+      for (int i = 0; i < condition; i++) {
+        liftingStep(matrix[i], condition, scratch);
+      }
+    }
+    for (int j = 0; j < condition; j++) {
+      for (int i = 0; i < condition; i++) {
+        column[i] = matrix[i][j];
+      }
+      if (inverse) {
+        unliftingStep(column, condition, scratch);
+      } else {
+        liftingStep(column, condition, scratch);
+      }
+      for (int i = 0; i < condition; i++) {
+        matrix[i][j] = column[i];
+      }
+    }
+    if (inverse) {
+      for (int i = 0; i < condition; i++) {
+        unliftingStep(matrix[i], condition, scratch);
+      }
+    }
+  }
+
+  /**
+   * Applies the full integer Haar transformation to the top-left {@code size x size} block of the
+   * matrix.
+   *
+   * @param matrix the matrix to transform in place.
+   * @param size   the side of the block, a power of two.
+   */
+  public static void forwardInteger(int[][] matrix, int size) {
+    for (int condition = size; condition > 1; condition /= 2) {
+      integerLevel(matrix, condition, false);
+    }
+  }
+
+  /**
+   * Applies the full inverse integer Haar transformation to the top-left {@code size x size} block
+   * of the matrix, restoring the original values exactly.
+   *
+   * @param matrix the matrix to invert in place.
+   * @param size   the side of the block, a power of two.
+   */
+  public static void inverseInteger(int[][] matrix, int size) {
+    inverseInteger(matrix, size, 0);
+  }
+
+  /**
+   * Reconstructs a reduced resolution approximation from a block transformed with the integer
+   * transformation by running only the coarse inverse levels. Because the lifting steps keep
+   * averages rather than scaled sums, the top-left {@code (size >> skipLevels)} square of the
+   * matrix directly holds the rounded down average of every {@code 2^skipLevels x 2^skipLevels}
+   * pixel block of the original.
+   *
+   * @param matrix     the transformed matrix to invert in place.
+   * @param size       the side of the transformed block, a power of two.
+   * @param skipLevels the number of fine levels to leave out.
+   */
+  public static void inverseInteger(int[][] matrix, int size, int skipLevels) {
+    for (int condition = 2; condition <= size >> skipLevels; condition *= 2) {
+      integerLevel(matrix, condition, true);
+    }
+  }
+
+  /**
+   * Returns the smallest power of two that is greater than or equal to the given value.
+   *
+   * @param value the value to round up.
+   * @return the power of two.
+   */
+  public static int nextPowerOfTwo(int value) {
+    int square = 1;
+    while (square < value) {
+      square *= 2;
+    }
+    return square;
+  }
+}
@@ -0,0 +1,66 @@
+package utils;
+
+/**
+ * Holds the red, green and blue histograms of an image estimated from a sample of its pixels,
+ * together with a bound on the error of the estimate. The frequencies are scaled to the number of
+ * pixels of the whole image, so they can be used in place of exact frequencies. An estimate made
+ * from every pixel is exact and has an error bound of zero.
+ */
+public class HistogramEstimate {
+
+  private final int[][] frequencies;
+  private final int samples;
+  private final double errorBound;
+
+  /**
+   * Constructs an estimate.
+   *
+   * @param frequencies the estimated frequency of every intensity, indexed by channel and then
+   *                    intensity.
+   * @param samples     the number of pixels read to make the estimate.
+   * @param errorBound  the largest difference, as a fraction of the pixel count, between the
+   *                    estimated and the exact cumulative frequencies of any channel, at 95%
+   *                    confidence; zero for an exact histogram.
+   */
+  public HistogramEstimate(int[][] frequencies, int samples, double errorBound) {
+    this.frequencies = frequencies;
+    this.samples = samples;
+    this.errorBound = errorBound;
+  }
+
+  /**
+   * Returns the estimated frequencies.
+   *
+   * @return the frequency of every intensity, indexed by channel and then intensity.
+   */
+  public int[][] getFrequencies() {
+    return this.frequencies;
+  }
+
+  /**
+   * Returns the number of pixels read to make the estimate.
+   *
+   * @return the number of samples.
+   */
+  public int getSamples() {
+    return this.samples;
+  }
+
+  /**
+   * Returns the bound on the error of the estimate, as a fraction of the pixel count.
+   *
+   * @return the error bound, zero for an exact histogram.
+   */
+  public double getErrorBound() {
+    return this.errorBound;
+  }
+
+  /**
+   * Returns whether the histogram is exact rather than estimated.
+   *
+   * @return true if every pixel was read.
+   */
+  public boolean isExact() {
+    return this.errorBound == 0;
+  }
+}
@@ -46,31 +46,6 @@ public class MyUtils {
     return Math.max(0, Math.min(255, value));
   }
 
-  /**
-   * Calculates the frequency of pixel intensity values for a specific color channel (R, G, or B) in
-   * a given RGB image matrix. This method iterates through the entire matrix, which represents an
-   * image in the form of a 3D array [height][width][3], where each element contains RGB values for
-   * a pixel. It counts how many times each possible pixel intensity (0 to 255) appears for the
-   * specified color channel.
-   *
-   * @param matrix  the 3D RGB matrix representing the image, with dimensions [height][width][3],
-   *                where the third dimension holds the RGB values.
-   * @param height  the number of rows (height) of pixels in the image.
-   * @param width   the number of columns (width) of pixels in the image.
-   * @param channel the index of the color channel to calculate frequency for (0 for Red, 1 for
-   *                Green, 2 for Blue).
-   * @return        an array of integers.
-   */
-  public static int[] calculateFrequency(int[][][] matrix, int height, int width, int channel) {
-    int[] frequency = new int[256];
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        frequency[matrix[i][j][channel]]++;
-      }
-    }
-    return frequency;
-  }
-
   /**
    * Extracts a specific color channel (Red, Green, or Blue) from a 3D RGB matrix. This method
    * creates a 2D array representing the specified color channel (R, G, or B) by iterating over the
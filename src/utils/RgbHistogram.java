@@ -0,0 +1,155 @@
+package utils;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Utility class computing the red, green and blue histograms of an image in a single pass. Every
+ * pixel is read once and counted into all three channels. Large images are split by rows into
+ * tasks on the common fork/join pool; every task fills its own private histogram and the results
+ * are merged as the tasks join, so no counter is shared between threads.
+ *
+ * <p>For images too large to read interactively the histograms can instead be estimated by
+ * stratified sampling: the image is cut into a grid of about as many cells as the sample budget and
+ * one pixel at a random position is read from every cell, weighted by the area of its cell.
+ */
+public class RgbHistogram {
+
+  private static final int MIN_PIXELS_PER_TASK = 1 << 16;
+  private static final long SAMPLE_SEED = 0x5EEDL;
+  private static final double CONFIDENCE_TERM = Math.log(2 / 0.05) / 2;
+
+  /**
+   * A task counting the pixel intensities of a range of rows.
+   */
+  private static class RowsTask extends RecursiveTask<int[][]> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int[][][] matrix;
+    private final int width;
+    private final int fromRow;
+    private final int toRow;
+
+    /**
+     * Constructs a task over the rows {@code fromRow} (inclusive) to {@code toRow} (exclusive).
+     *
+     * @param matrix  the 3D RGB matrix of the image.
+     * @param width   the number of columns to count in every row.
+     * @param fromRow the first row to count.
+     * @param toRow   the row after the last row to count.
+     */
+    private RowsTask(int[][][] matrix, int width, int fromRow, int toRow) {
+      this.matrix = matrix;
+      this.width = width;
+      this.fromRow = fromRow;
+      this.toRow = toRow;
+    }
+
+    @Override
+    protected int[][] compute() {
+      int rows = toRow - fromRow;
+      if (rows < 2 || (long) rows * width <= MIN_PIXELS_PER_TASK) {
+        return count(matrix, width, fromRow, toRow);
+      }
+      int middle = fromRow + rows / 2;
+      RowsTask top = new RowsTask(matrix, width, fromRow, middle);
+      top.fork();
+      int[][] frequencies = new RowsTask(matrix, width, middle, toRow).compute();
+      int[][] topFrequencies = top.join();
+      for (int k = 0; k < 3; k++) {
+        for (int v = 0; v < 256; v++) {
+          frequencies[k][v] += topFrequencies[k][v];
+        }
+      }
+      return frequencies;
+    }
+  }
+
+  /**
+   * Counts the pixel intensities of a range of rows sequentially.
+   *
+   * @param matrix  the 3D RGB matrix of the image.
+   * @param width   the number of columns to count in every row.
+   * @param fromRow the first row to count.
+   * @param toRow   the row after the last row to count.
+   * @return the frequencies of every intensity, indexed by channel and then intensity.
+   */
+  private static int[][] count(int[][][] matrix, int width, int fromRow, int toRow) {
+    int[] red = new int[256];
+    int[] green = new int[256];
+    int[] blue = new int[256];
+    for (int i = fromRow; i < toRow; i++) {
+      int[][] row = matrix[i];
+      for (int j = 0; j < width; j++) {
+        int[] pixel = row[j];
+        red[pixel[0]]++;
+        green[pixel[1]]++;
+        blue[pixel[2]]++;
+      }
+    }
+    return new int[][]{red, green, blue};
+  }
+
+  /**
+   * Calculates the frequency of every pixel intensity (0 to 255) in the red, green and blue
+   * channels of the top-left {@code height x width} part of the image.
+   *
+   * @param matrix the 3D RGB matrix representing the image, with dimensions [height][width][3].
+   * @param height the number of rows of pixels to count.
+   * @param width  the number of columns of pixels to count.
+   * @return the frequencies, indexed by channel (0 for Red, 1 for Green, 2 for Blue) and then by
+   *         intensity.
+   */
+  public static int[][] calculateFrequencies(int[][][] matrix, int height, int width) {
+    if ((long) height * width <= MIN_PIXELS_PER_TASK) {
+      return count(matrix, width, 0, height);
+    }
+    return ForkJoinPool.commonPool().invoke(new RowsTask(matrix, width, 0, height));
+  }
+
+  /**
+   * Estimates the frequency of every pixel intensity in the red, green and blue channels of the
+   * top-left {@code height x width} part of the image from at most about {@code budget} pixels.
+   * When the budget covers the whole image the exact frequencies are returned instead. The
+   * sampling is seeded, so the same image always gives the same estimate.
+   *
+   * @param matrix the 3D RGB matrix representing the image, with dimensions [height][width][3].
+   * @param height the number of rows of pixels to count.
+   * @param width  the number of columns of pixels to count.
+   * @param budget the number of pixels that may be read.
+   * @return the estimated frequencies with their error bound.
+   * @throws IllegalArgumentException if the budget is not positive.
+   */
+  public static HistogramEstimate sampleFrequencies(int[][][] matrix, int height, int width,
+      int budget) {
+    if (budget <= 0) {
+      throw new IllegalArgumentException("Sample budget must be positive");
+    }
+    if ((long) height * width <= budget) {
+      return new HistogramEstimate(calculateFrequencies(matrix, height, width), height * width,
+          0);
+    }
+    int strataDown = (int) Math.max(1, Math.min(height,
+        Math.round(Math.sqrt((double) budget * height / width))));
+    int strataAcross = Math.max(1, Math.min(width, budget / strataDown));
+    SplittableRandom random = new SplittableRandom(SAMPLE_SEED);
+    int[][] frequencies = new int[3][256];
+    for (int r = 0; r < strataDown; r++) {
+      int top = (int) ((long) r * height / strataDown);
+      int rows = (int) ((long) (r + 1) * height / strataDown) - top;
+      for (int c = 0; c < strataAcross; c++) {
+        int left = (int) ((long) c * width / strataAcross);
+        int cols = (int) ((long) (c + 1) * width / strataAcross) - left;
+        int[] pixel = matrix[top + random.nextInt(rows)][left + random.nextInt(cols)];
+        int area = rows * cols;
+        frequencies[0][pixel[0]] += area;
+        frequencies[1][pixel[1]] += area;
+        frequencies[2][pixel[2]] += area;
+      }
+    }
+    int samples = strataDown * strataAcross;
+    return new HistogramEstimate(frequencies, samples, Math.sqrt(CONFIDENCE_TERM / samples));
+  }
+}
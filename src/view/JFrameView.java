@@ -687,7 +687,7 @@ public class JFrameView extends JFrame implements IView {
 
   /**
    * Checks if the given file is a valid image file based on its extension. Supported image formats
-   * include JPG, JPEG, PNG, and PPM.
+   * include JPG, JPEG, PNG, PPM, PGM and HWC.
    *
    * @param file the file to check.
    * @return true if the file is an image, false otherwise.
@@ -695,7 +695,7 @@ public class JFrameView extends JFrame implements IView {
   private boolean isImageFile(File file) {
     String fileName = file.getName().toLowerCase();
     return fileName.endsWith(".jpg") || fileName.endsWith(".jpeg") || fileName.endsWith(".png")
-        || fileName.endsWith(".ppm");
+        || fileName.endsWith(".ppm") || fileName.endsWith(".pgm") || fileName.endsWith(".hwc");
   }
 
   /**
@@ -790,7 +790,8 @@ public class JFrameView extends JFrame implements IView {
     JFileChooser fileChooser = new JFileChooser();
     fileChooser.setDialogTitle("Load Image File");
     FileNameExtensionFilter extensionFilter = new FileNameExtensionFilter(
-        "Image Files" + "(JPG, JPEG, PPM, PNG)", "jpg", "jpeg", "png", "ppm");
+        "Image Files" + "(JPG, JPEG, PPM, PGM, PNG, HWC)", "jpg", "jpeg", "png", "ppm", "pgm",
+        "hwc");
     fileChooser.setFileFilter(extensionFilter);
     int result = fileChooser.showOpenDialog(this);
     if (result == JFileChooser.APPROVE_OPTION) {
@@ -811,7 +812,8 @@ public class JFrameView extends JFrame implements IView {
     JFileChooser fileChooser = new JFileChooser();
     fileChooser.setDialogTitle("Save Image File");
     FileNameExtensionFilter extensionFilter = new FileNameExtensionFilter(
-        "Image Files" + "(JPG, JPEG, PPM, PNG)", "jpg", "jpeg", "png", "ppm");
+        "Image Files" + "(JPG, JPEG, PPM, PGM, PNG, HWC)", "jpg", "jpeg", "png", "ppm", "pgm",
+        "hwc");
     fileChooser.setFileFilter(extensionFilter);
     int result = fileChooser.showSaveDialog(this);
     if (result == JFileChooser.APPROVE_OPTION) {
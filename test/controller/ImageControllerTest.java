@@ -1,15 +1,25 @@
 package controller;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.awt.image.BufferedImage;
+import java.io.File;
 import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import javax.imageio.ImageIO;
 import model.ImageModel;
 import model.ImageModelImplV2;
+import model.ImageModelImplV4;
 import org.junit.Before;
 import org.junit.Test;
 import view.Message;
@@ -32,7 +42,7 @@ public class ImageControllerTest {
     log = new ArrayList<>();
     out = new StringBuilder();
     view = new MessageView(out);
-    model = new MockImageModelImplV3(log);
+    model = new MockImageModelImplV4(log);
   }
 
   @Test
@@ -558,6 +568,52 @@ public class ImageControllerTest {
     assertEquals("\u001B[91mInvalid Command parameters!\u001B[0m", output);
   }
 
+  @Test
+  public void CompressScaleCommandTest() {
+    in = new StringReader("compress 60 man save scale 4");
+    controller = new ImageController(model, view, in);
+    controller.start();
+    assertEquals("applying Compression with percentage: 60 on imageName man "
+        + "and saveImage save at scale 4", log.get(0));
+  }
+
+  @Test
+  public void CompressInvalidScaleTest() {
+    in = new StringReader("compress 60 man save scale 3");
+    controller = new ImageController(model, view, in);
+    controller.start();
+    String output = out.toString().trim().split("\n")[1];
+    assertEquals("\u001B[91mScale must be 2, 4 or 8\u001B[0m", output);
+  }
+
+  @Test
+  public void CompressBlockCommandTest() {
+    in = new StringReader("compress 60 man save block 256 threshold global");
+    controller = new ImageController(model, view, in);
+    controller.start();
+    assertEquals("applying block Compression with percentage: 60 on imageName man "
+        + "and saveImage save with block size 256 and global threshold true", log.get(0));
+  }
+
+  @Test
+  public void CompressInvalidBlockTest() {
+    in = new StringReader("compress 60 man save block 100");
+    controller = new ImageController(model, view, in);
+    controller.start();
+    String output = out.toString().trim().split("\n")[1];
+    assertEquals("\u001B[91mBlock size must be a power of two between 8 and 4096\u001B[0m",
+        output);
+  }
+
+  @Test
+  public void CompressIntegerCommandTest() {
+    in = new StringReader("compress 60 man save transform integer");
+    controller = new ImageController(model, view, in);
+    controller.start();
+    assertEquals("applying integer Compression with percentage: 60 on imageName man "
+        + "and saveImage save at scale 1", log.get(0));
+  }
+
   @Test
   public void CompressPercentageTest() {
     in = new StringReader("compress 160 man save");
@@ -602,6 +658,130 @@ public class ImageControllerTest {
     assertEquals("\u001B[91mInvalid Command parameters!\u001B[0m", output);
   }
 
+  @Test
+  public void HistogramRegionCommandTest() {
+    in = new StringReader("histogram man save region 10 20 30 40");
+    controller = new ImageController(model, view, in);
+    controller.start();
+    assertEquals("applying Histogram on imageName man and saveImage save in region 10 20 30 40",
+        log.get(0));
+  }
+
+  @Test
+  public void HistogramRegionKeywordTest() {
+    in = new StringReader("histogram man save area 10 20 30 40");
+    controller = new ImageController(model, view, in);
+    controller.start();
+    String output = out.toString().trim().split("\n")[1];
+    assertEquals("\u001B[91mInvalid Command parameters!\u001B[0m", output);
+  }
+
+  @Test
+  public void HistogramRegionBoundsTest() {
+    in = new StringReader("histogram man save region 10 a 30 40");
+    controller = new ImageController(model, view, in);
+    controller.start();
+    String output = out.toString().trim().split("\n")[1];
+    assertEquals("\u001B[91mRegion bounds must be integers\u001B[0m", output);
+  }
+
+  @Test
+  public void ColorCorrectRegionCommandTest() {
+    in = new StringReader("color-correct man save region 0 0 5 5");
+    controller = new ImageController(model, view, in);
+    controller.start();
+    assertEquals("applying Color Correction on imageName man and saveImage save in region "
+        + "0 0 5 5", log.get(0));
+  }
+
+  @Test
+  public void ResizeCommandTest() {
+    in = new StringReader("resize 300 400 man big bicubic");
+    controller = new ImageController(model, view, in);
+    controller.start();
+    assertEquals("applying resize on image: man with save image name: big with height: 300 "
+        + "with width: 400 and filter: bicubic", log.get(0));
+  }
+
+  @Test
+  public void ResizeCommandDefaultFilterTest() {
+    in = new StringReader("resize 30 40 man small");
+    controller = new ImageController(model, view, in);
+    controller.start();
+    assertEquals("applying resize on image: man with save image name: small with height: 30 "
+        + "with width: 40 and filter: lanczos", log.get(0));
+  }
+
+  @Test
+  public void ResizeCommandInvalidSizeTest() {
+    in = new StringReader("resize 30 wide man small");
+    controller = new ImageController(model, view, in);
+    controller.start();
+    String output = out.toString().trim().split("\n")[1];
+    assertEquals("\u001B[91mHeight and width should be integers!\u001B[0m", output);
+  }
+
+  @Test
+  public void DownscaleCommandTest() {
+    in = new StringReader("downscale 30 40 man small");
+    controller = new ImageController(model, view, in);
+    controller.start();
+    assertEquals("applying downscaling on image: man with save image name: small with height: 30 "
+        + "with width: 40", log.get(0));
+  }
+
+  @Test
+  public void DownscaleCommandAreaTest() {
+    in = new StringReader("downscale 30 40 man small area");
+    controller = new ImageController(model, view, in);
+    controller.start();
+    assertEquals("applying area downscaling on image: man with save image name: small with "
+        + "height: 30 with width: 40", log.get(0));
+  }
+
+  @Test
+  public void DownscaleCommandPyramidTest() {
+    in = new StringReader("downscale 30 40 man small pyramid");
+    controller = new ImageController(model, view, in);
+    controller.start();
+    assertEquals("applying pyramid downscaling on image: man with save image name: small with "
+        + "height: 30 with width: 40", log.get(0));
+  }
+
+  @Test
+  public void DownscaleCommandInvalidModeTest() {
+    in = new StringReader("downscale 30 40 man small nearest");
+    controller = new ImageController(model, view, in);
+    controller.start();
+    String output = out.toString().trim().split("\n")[1];
+    assertEquals("\u001B[91mDownscale mode must be bilinear, area or pyramid\u001B[0m", output);
+  }
+
+  @Test
+  public void ErodeCommandTest() {
+    in = new StringReader("erode 5 mask smaller");
+    controller = new ImageController(model, view, in);
+    controller.start();
+    assertEquals("applying erode on mask mask and saveImage smaller with element 5x5", log.get(0));
+  }
+
+  @Test
+  public void CloseCommandTest() {
+    in = new StringReader("close 3 9 mask filled");
+    controller = new ImageController(model, view, in);
+    controller.start();
+    assertEquals("applying close on mask mask and saveImage filled with element 3x9", log.get(0));
+  }
+
+  @Test
+  public void DilateCommandInvalidSizeTest() {
+    in = new StringReader("dilate big mask larger");
+    controller = new ImageController(model, view, in);
+    controller.start();
+    String output = out.toString().trim().split("\n")[1];
+    assertEquals("\u001B[91mStructuring element size should be integers!\u001B[0m", output);
+  }
+
   @Test
   public void LevelAdjustCommandTest() {
     in = new StringReader("levels-adjust 0 100 255 man save");
@@ -954,6 +1134,116 @@ public class ImageControllerTest {
         out.toString().split("\n")[2]);
   }
 
+  @Test
+  public void IntegratedWaveletFormatTest() {
+    ImageModel model2 = new ImageModelImplV2();
+    in = new StringReader("load images/manhattan-small.png man"
+        + "\nsave test/controller/tempTestImages/new.hwc man"
+        + "\nload test/controller/tempTestImages/new.hwc hwc");
+    controller = new ImageController(model2, view, in);
+    controller.start();
+    assertArrayEquals(model2.saveImage("man"), model2.saveImage("hwc"));
+  }
+
+  @Test
+  public void IntegratedQuantisedWaveletFormatTest() {
+    ImageModel model2 = new ImageModelImplV2();
+    in = new StringReader("load images/manhattan-small.png man"
+        + "\nsave test/controller/tempTestImages/new.hwc man step 4"
+        + "\nload test/controller/tempTestImages/new.hwc hwc");
+    controller = new ImageController(model2, view, in);
+    controller.start();
+    int[][][] original = model2.saveImage("man");
+    int[][][] decoded = model2.saveImage("hwc");
+    assertEquals(original.length, decoded.length);
+    assertEquals(original[0].length, decoded[0].length);
+    long error = 0;
+    for (int i = 0; i < original.length; i++) {
+      for (int j = 0; j < original[0].length; j++) {
+        for (int k = 0; k < 3; k++) {
+          error += Math.abs(original[i][j][k] - decoded[i][j][k]);
+        }
+      }
+    }
+    assertTrue(error > 0);
+    assertTrue(error <= original.length * original[0].length * 3L);
+    assertTrue(new File("test/controller/tempTestImages/new.hwc").length()
+        < new File("images/manhattan-small.png").length());
+  }
+
+  @Test
+  public void failedWaveletWriteDeletesFileTest() throws Exception {
+    File file = new File("test/controller/tempTestImages/failed.hwc");
+    Files.writeString(file.toPath(), "an earlier file");
+    int[][][] ragged = new int[70][64][3];
+    ragged[69] = new int[1][3];
+    try {
+      WaveletImageFormat.write(file, ragged);
+      fail("a ragged image should not encode");
+    } catch (ArrayIndexOutOfBoundsException e) {
+      assertFalse(file.exists());
+    }
+  }
+
+  @Test
+  public void invalidQuantisationStepTest() {
+    in = new StringReader("save test/controller/tempTestImages/new.hwc man step 0");
+    controller = new ImageController(model, view, in);
+    controller.start();
+    String output = out.toString().trim().split("\n")[1];
+    assertEquals("\u001B[91mQuantisation step must be a positive integer\u001B[0m", output);
+  }
+
+  @Test
+  public void quantisationStepNonWaveletTest() {
+    in = new StringReader("save test/controller/tempTestImages/new.png man step 4");
+    controller = new ImageController(model, view, in);
+    controller.start();
+    String output = out.toString().trim().split("\n")[1];
+    assertEquals("\u001B[91mOnly HWC images can be saved with a quantisation step\u001B[0m",
+        output);
+  }
+
+  @Test
+  public void IntegratedLosslessWaveletFormatTest() {
+    ImageModel model2 = new ImageModelImplV4();
+    in = new StringReader("load images/manhattan-small.png man"
+        + "\ncompress 0 man exact transform integer"
+        + "\nsave test/controller/tempTestImages/new.hwc man lossless"
+        + "\nload test/controller/tempTestImages/new.hwc hwc");
+    controller = new ImageController(model2, view, in);
+    controller.start();
+    assertArrayEquals(model2.saveImage("man"), model2.saveImage("exact"));
+    assertArrayEquals(model2.saveImage("man"), model2.saveImage("hwc"));
+  }
+
+  @Test
+  public void losslessSaveNonWaveletTest() {
+    in = new StringReader("save test/controller/tempTestImages/new.png man lossless");
+    controller = new ImageController(model, view, in);
+    controller.start();
+    String output = out.toString().trim().split("\n")[1];
+    assertEquals("\u001B[91mOnly HWC images can be saved losslessly\u001B[0m", output);
+  }
+
+  @Test
+  public void IntegratedWaveletScaledLoadTest() {
+    ImageModel model2 = new ImageModelImplV4();
+    in = new StringReader("load images/manhattan-small.png man"
+        + "\nsave test/controller/tempTestImages/new.hwc man"
+        + "\nload test/controller/tempTestImages/new.hwc hwc scale 4"
+        + "\ncompress 0 man small scale 4");
+    controller = new ImageController(model2, view, in);
+    controller.start();
+    int[][][] original = model2.saveImage("man");
+    int[][][] decoded = model2.saveImage("hwc");
+    int[][][] compressed = model2.saveImage("small");
+    assertEquals((original.length + 3) / 4, decoded.length);
+    assertEquals((original[0].length + 3) / 4, decoded[0].length);
+    assertEquals(decoded.length, compressed.length);
+    assertEquals(decoded[0].length, compressed[0].length);
+  }
+
   @Test
   public void blurMaskTest() {
     in = new StringReader("blur man mask save");
@@ -1035,6 +1325,251 @@ public class ImageControllerTest {
         + "mask image: mask with operation type: value-component",log.get(0));
   }
 
-}
+  @Test
+  public void IntegratedPPMCommentsAndMaxValueTest() throws Exception {
+    Path path = Paths.get("test/controller/tempTestImages/comments.ppm");
+    Files.writeString(path, "P3 # plain\n# size\n2 1 # width and height\n15\n"
+        + "0 15 5 #first\n15\n7 # last\n10\n");
+    ImageModel model2 = new ImageModelImplV2();
+    in = new StringReader("load test/controller/tempTestImages/comments.ppm ppm");
+    controller = new ImageController(model2, view, in);
+    controller.start();
+    Files.delete(path);
+    assertArrayEquals(new int[][][]{{{0, 255, 85}, {255, 119, 170}}}, model2.saveImage("ppm"));
+  }
+
+  @Test
+  public void IntegratedPPMRoundTripTest() throws Exception {
+    ImageModel model2 = new ImageModelImplV2();
+    in = new StringReader("load images/manhattan-small.png man"
+        + "\nsave test/controller/tempTestImages/roundtrip.ppm man"
+        + "\nload test/controller/tempTestImages/roundtrip.ppm ppm");
+    controller = new ImageController(model2, view, in);
+    controller.start();
+    Files.delete(Paths.get("test/controller/tempTestImages/roundtrip.ppm"));
+    assertArrayEquals(model2.saveImage("man"), model2.saveImage("ppm"));
+  }
+
+  @Test
+  public void IntegratedPPMInvalidMaxValueTest() throws Exception {
+    Path path = Paths.get("test/controller/tempTestImages/invalid.ppm");
+    Files.writeString(path, "P3\n1 1\n70000\n0 0 0\n");
+    in = new StringReader("load test/controller/tempTestImages/invalid.ppm ppm");
+    controller = new ImageController(new ImageModelImplV2(), view, in);
+    controller.start();
+    Files.delete(path);
+    assertEquals("\u001B[91mInvalid PPM file: max value must be between 1 and 65535\u001B[0m",
+        out.toString().trim().split("\n")[1]);
+  }
+
+  @Test
+  public void IntegratedPPMValueAboveMaxTest() throws Exception {
+    Path path = Paths.get("test/controller/tempTestImages/invalid.ppm");
+    Files.writeString(path, "P3\n1 1\n100\n0 101 0\n");
+    in = new StringReader("load test/controller/tempTestImages/invalid.ppm ppm");
+    controller = new ImageController(new ImageModelImplV2(), view, in);
+    controller.start();
+    Files.delete(path);
+    assertEquals("\u001B[91mInvalid PPM file: value exceeds the max value\u001B[0m",
+        out.toString().trim().split("\n")[1]);
+  }
+
+  @Test
+  public void IntegratedPPMTruncatedTest() throws Exception {
+    Path path = Paths.get("test/controller/tempTestImages/invalid.ppm");
+    Files.writeString(path, "P3\n2 1\n255\n0 0 0 # one pixel only\n");
+    in = new StringReader("load test/controller/tempTestImages/invalid.ppm ppm");
+    controller = new ImageController(new ImageModelImplV2(), view, in);
+    controller.start();
+    Files.delete(path);
+    assertEquals("\u001B[91mInvalid PPM file: unexpected end of file\u001B[0m",
+        out.toString().trim().split("\n")[1]);
+  }
 
+  @Test
+  public void IntegratedBinaryPPMRoundTripTest() throws Exception {
+    ImageModel model2 = new ImageModelImplV2();
+    in = new StringReader("load images/manhattan-small.png man"
+        + "\nsave test/controller/tempTestImages/binary.ppm man binary"
+        + "\nload test/controller/tempTestImages/binary.ppm ppm");
+    controller = new ImageController(model2, view, in);
+    controller.start();
+    Path path = Paths.get("test/controller/tempTestImages/binary.ppm");
+    byte[] bytes = Files.readAllBytes(path);
+    Files.delete(path);
+    int[][][] original = model2.saveImage("man");
+    assertEquals('P', bytes[0]);
+    assertEquals('6', bytes[1]);
+    assertEquals(original.length * original[0].length * 3,
+        bytes.length - ("P6\n" + original[0].length + " " + original.length + "\n255\n").length());
+    assertArrayEquals(original, model2.saveImage("ppm"));
+  }
 
+  @Test
+  public void IntegratedPGMRoundTripTest() throws Exception {
+    ImageModel model2 = new ImageModelImplV2();
+    in = new StringReader("load images/manhattan-small.png man"
+        + "\nluma-component man luma"
+        + "\nsave test/controller/tempTestImages/grey.pgm luma"
+        + "\nload test/controller/tempTestImages/grey.pgm pgm");
+    controller = new ImageController(model2, view, in);
+    controller.start();
+    Files.delete(Paths.get("test/controller/tempTestImages/grey.pgm"));
+    assertArrayEquals(model2.saveImage("luma"), model2.saveImage("pgm"));
+  }
+
+  @Test
+  public void IntegratedSixteenBitPPMTest() throws Exception {
+    Path path = Paths.get("test/controller/tempTestImages/deep.ppm");
+    byte[] header = "P6 # sixteen bit\n2 1\n65535\n".getBytes(StandardCharsets.US_ASCII);
+    byte[] samples = {0, 0, (byte) 0xFF, (byte) 0xFF, (byte) 0x80, 0,
+        0x10, 0x00, 0x7F, (byte) 0xFF, (byte) 0xFF, 0x00};
+    byte[] bytes = Arrays.copyOf(header, header.length + samples.length);
+    System.arraycopy(samples, 0, bytes, header.length, samples.length);
+    Files.write(path, bytes);
+    ImageModel model2 = new ImageModelImplV2();
+    in = new StringReader("load test/controller/tempTestImages/deep.ppm deep");
+    controller = new ImageController(model2, view, in);
+    controller.start();
+    Files.delete(path);
+    assertArrayEquals(new int[][][]{{{0, 255, 128}, {16, 127, 254}}}, model2.saveImage("deep"));
+  }
+
+  @Test
+  public void IntegratedTruncatedBinaryPGMTest() throws Exception {
+    Path path = Paths.get("test/controller/tempTestImages/invalid.pgm");
+    Files.write(path, "P5\n4 4\n255\n\u0001\u0002".getBytes(StandardCharsets.US_ASCII));
+    in = new StringReader("load test/controller/tempTestImages/invalid.pgm pgm");
+    controller = new ImageController(new ImageModelImplV2(), view, in);
+    controller.start();
+    Files.delete(path);
+    assertEquals("\u001B[91mInvalid PPM file: unexpected end of file\u001B[0m",
+        out.toString().trim().split("\n")[1]);
+  }
+
+  @Test
+  public void binarySaveNonPPMTest() {
+    in = new StringReader("save test/controller/tempTestImages/new.png man binary");
+    controller = new ImageController(model, view, in);
+    controller.start();
+    assertEquals("\u001B[91mOnly PPM images can be saved in binary\u001B[0m",
+        out.toString().trim().split("\n")[1]);
+  }
+
+  @Test
+  public void IntegratedPlainPPMSaveFormatTest() throws Exception {
+    ImageModel model2 = new ImageModelImplV2();
+    model2.loadImage("tiny",
+        new int[][][]{{{0, 7, 255}, {300, -4, 42}}, {{1, 22, 133}, {9, 9, 9}}});
+    in = new StringReader("save test/controller/tempTestImages/tiny.ppm tiny");
+    controller = new ImageController(model2, view, in);
+    controller.start();
+    Path path = Paths.get("test/controller/tempTestImages/tiny.ppm");
+    String saved = Files.readString(path);
+    Files.delete(path);
+    assertEquals("P3\n2 2\n255\n0 7 255\n255 0 42\n1 22 133\n9 9 9\n", saved);
+  }
+
+  @Test
+  public void IntegratedGreyPNGLoadTest() throws Exception {
+    BufferedImage grey = new BufferedImage(3, 1, BufferedImage.TYPE_BYTE_GRAY);
+    grey.getRaster().setPixels(0, 0, 3, 1, new int[]{0, 64, 200});
+    File file = new File("test/controller/tempTestImages/grey.png");
+    ImageIO.write(grey, "png", file);
+    ImageModel model2 = new ImageModelImplV2();
+    in = new StringReader("load test/controller/tempTestImages/grey.png grey");
+    controller = new ImageController(model2, view, in);
+    controller.start();
+    Files.delete(file.toPath());
+    assertArrayEquals(new int[][][]{{{0, 0, 0}, {64, 64, 64}, {200, 200, 200}}},
+        model2.saveImage("grey"));
+  }
+
+  @Test
+  public void IntegratedPNGRoundTripTest() throws Exception {
+    ImageModel model2 = new ImageModelImplV2();
+    in = new StringReader("load images/manhattan-small.png man"
+        + "\nsave test/controller/tempTestImages/roundtrip.png man"
+        + "\nload test/controller/tempTestImages/roundtrip.png png");
+    controller = new ImageController(model2, view, in);
+    controller.start();
+    Files.delete(Paths.get("test/controller/tempTestImages/roundtrip.png"));
+    assertArrayEquals(model2.saveImage("man"), model2.saveImage("png"));
+  }
+
+  @Test
+  public void backgroundSaveErrorLineTest() throws Exception {
+    Path directory = Paths.get("test/controller/tempTestImages/folder.ppm");
+    Files.createDirectories(directory);
+    ImageModel model2 = new ImageModelImplV2();
+    in = new StringReader("load images/manhattan-small.png man"
+        + "\nsave test/controller/tempTestImages/folder.ppm man"
+        + "\nbrighten 10 man bright");
+    controller = new ImageController(model2, view, in);
+    controller.start();
+    Files.delete(directory);
+    String[] lines = out.toString().trim().split("\n");
+    assertEquals("\u001B[33msave command executed successfully!\u001B[0m", lines[2]);
+    assertTrue(Arrays.asList(lines)
+        .contains("\u001B[91mLine 2: Error while saving the image!\u001B[0m"));
+  }
+
+  @Test
+  public void scriptPrefetchTest() throws Exception {
+    Path script = Paths.get("test/controller/tempTestImages/prefetch.txt");
+    Files.writeString(script, "load images/manhattan-small.png man\n"
+        + "load test/controller/tempTestImages/missing.png gone\n"
+        + "# reloading an image saved by the script reads the new file\n"
+        + "horizontal-flip man flipped\n"
+        + "save test/controller/tempTestImages/flipped.ppm flipped\n"
+        + "load test/controller/tempTestImages/flipped.ppm reloaded\n");
+    ImageModel model2 = new ImageModelImplV2();
+    in = new StringReader("run test/controller/tempTestImages/prefetch.txt");
+    controller = new ImageController(model2, view, in);
+    controller.start();
+    Files.delete(script);
+    Files.delete(Paths.get("test/controller/tempTestImages/flipped.ppm"));
+    String[] lines = out.toString().trim().split("\n");
+    assertEquals("\u001B[33mload command executed successfully!\u001B[0m", lines[1]);
+    assertEquals("\u001B[91mError loading Image!\u001B[0m", lines[2]);
+    assertEquals("\u001B[33mload command executed successfully!\u001B[0m", lines[5]);
+    assertArrayEquals(model2.saveImage("flipped"), model2.saveImage("reloaded"));
+  }
+
+  @Test
+  public void prefetchWindowTest() {
+    List<String> lines = Arrays.asList("load images/manhattan-small.png first",
+        "load test/controller/tempTestImages/missing.png gone",
+        "# loads past the window wait for room",
+        "load images/manhattan-small-blur.png blur",
+        "load images/galaxy.png galaxy",
+        "load images/manhattan-small.png again");
+    String[] paths = {"images/manhattan-small.png", null, null, "images/manhattan-small-blur.png",
+        "images/galaxy.png", "images/manhattan-small.png"};
+    LoadPrefetcher prefetcher = new LoadPrefetcher(lines, new SaveQueue(), 2);
+    assertEquals(2, prefetcher.outstanding());
+    assertTrue(prefetcher.has(5));
+    for (int line = 1; line <= lines.size(); line++) {
+      if (line == 3) {
+        assertFalse(prefetcher.has(line));
+        continue;
+      }
+      assertTrue(prefetcher.has(line));
+      if (paths[line - 1] == null) {
+        try {
+          prefetcher.take(line);
+          fail("a missing file should not decode");
+        } catch (RuntimeException e) {
+          assertEquals("Error loading Image!", e.getMessage());
+        }
+      } else {
+        LoadCommand load = new LoadCommand(paths[line - 1], "image", "png");
+        assertArrayEquals(load.decode(), prefetcher.take(line));
+      }
+      assertTrue(prefetcher.outstanding() <= 2);
+    }
+    assertEquals(0, prefetcher.outstanding());
+    prefetcher.cancel();
+  }
+
+}
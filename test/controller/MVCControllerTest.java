@@ -3,9 +3,12 @@ package controller;
 
 import static org.junit.Assert.assertEquals;
 
+import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.List;
 import model.ImageModel;
+import model.ImageModelImplV4;
+import model.ImageModelV4;
 import org.junit.Before;
 import org.junit.Test;
 import view.IView;
@@ -51,6 +54,42 @@ public class MVCControllerTest {
     assertEquals(expected, log);
   }
 
+  @Test
+  public void testLoadImageCachedHistogram() {
+    features = new FeaturesImpl(new MockImageModelImplV4(log), view);
+    features.loadImage();
+    expected.add("fetching file");
+    expected.add("loadImage with imageName: new");
+    expected.add("Save image with imageName: new");
+    expected.add("displaying image in GUI : new");
+    expected.add("estimating Histogram of imageName new");
+    expected.add("displaying histogram in GUI : new");
+    assertEquals(expected, log);
+  }
+
+  @Test
+  public void testHistogramRenderer() {
+    ImageModelV4 model2 = new ImageModelImplV4();
+    int[][][] rgb = new int[20][30][3];
+    for (int i = 0; i < 20; i++) {
+      for (int j = 0; j < 30; j++) {
+        rgb[i][j][0] = 7 * i;
+        rgb[i][j][1] = 5 * j;
+        rgb[i][j][2] = 128;
+      }
+    }
+    model2.loadImage("img", rgb);
+    int[][][] expectedPlot = model2.renderHistogram("img");
+    BufferedImage plot = new HistogramRenderer().render(model2.getHistogram("img"));
+    for (int i = 0; i < 256; i++) {
+      for (int j = 0; j < 256; j++) {
+        int pixel = expectedPlot[i][j][0] << 16 | expectedPlot[i][j][1] << 8
+            | expectedPlot[i][j][2];
+        assertEquals(pixel, plot.getRGB(j, i) & 0xFFFFFF);
+      }
+    }
+  }
+
   @Test
   public void testSaveImage() {
     features.loadImage();
@@ -123,6 +162,59 @@ public class MVCControllerTest {
     assertEquals(expected, log);
   }
 
+  @Test
+  public void TestBlurPreviewIncremental() {
+    features = new FeaturesImpl(new MockImageModelImplV4(log), view);
+    features.splitPreviewImage("blur", "manhattan", "50", (String[]) null);
+    features.splitPreviewImage("blur", "manhattan", "75", (String[]) null);
+    features.splitPreviewImage("levels-adjust", "manhattan", "75", "10", "100", "200");
+    features.splitPreviewImage("levels-adjust", "manhattan", "20", "10", "100", "200");
+    expected.add("previewing operation blur on imageName manhattan with params []");
+    expected.add("Save image with imageName: manhattan");
+    expected.add("displaying in preview : manhattanblur_splitPreview");
+    expected.add("displaying in preview : manhattanblur_splitPreview");
+    expected.add("previewing operation levels-adjust on imageName manhattan with params "
+        + "[10, 100, 200]");
+    expected.add("Save image with imageName: manhattan");
+    expected.add("displaying in preview : manhattanlevels-adjust_splitPreview");
+    expected.add("displaying in preview : manhattanlevels-adjust_splitPreview");
+    assertEquals(expected, log);
+  }
+
+  @Test
+  public void TestBlurPreviewIncrementalInvalid() {
+    features = new FeaturesImpl(new MockImageModelImplV4(log), view);
+    features.splitPreviewImage("blur", "manhattan", "150", (String[]) null);
+    features.splitPreviewImage("blur", "manhattan", "five", (String[]) null);
+    expected.add("showing error : Percentage must be between 0 and 100");
+    expected.add("showing error : Parameters must be integers");
+    assertEquals(expected, log);
+  }
+
+  @Test
+  public void testSplitPreviewRenderer() {
+    ImageModelV4 model2 = new ImageModelImplV4();
+    int[][][] rgb = new int[12][40][3];
+    for (int i = 0; i < 12; i++) {
+      for (int j = 0; j < 40; j++) {
+        rgb[i][j] = new int[]{6 * j, 20 * i, (i * j) % 256};
+      }
+    }
+    model2.loadImage("img", rgb);
+    int[][][] operated = model2.previewOperation("sepia", "img", new int[0]);
+    SplitPreviewRenderer renderer = new SplitPreviewRenderer("img", rgb, operated);
+    for (double percentage : new double[]{30, 80, 10, 10, 100, 0, 55.5}) {
+      BufferedImage preview = renderer.render(percentage);
+      int split = (int) (40 * percentage / 100);
+      for (int i = 0; i < 12; i++) {
+        for (int j = 0; j < 40; j++) {
+          int[] pixel = j < split ? operated[i][j] : rgb[i][j];
+          assertEquals(pixel[0] << 16 | pixel[1] << 8 | pixel[2], preview.getRGB(j, i) & 0xFFFFFF);
+        }
+      }
+    }
+  }
+
   @Test
   public void TestBlurInvalidPercentage1() {
     features.loadImage();
@@ -1347,6 +1439,17 @@ public class MVCControllerTest {
     assertEquals(expected, log);
   }
 
+  @Test
+  public void TestDownscalingArea() {
+    features = new FeaturesImpl(new MockImageModelImplV4(log), view);
+    features.downScaling("manhattan", "100", "200", false);
+    expected.add("applying area downscaling on image: manhattan with save image name: "
+        + "manhattan100200 with height: 100 with width: 200");
+    expected.add("Save image with imageName: manhattan100200");
+    expected.add("displaying in preview : manhattan100200");
+    assertEquals(expected, log);
+  }
+
   @Test
   public void TestDownscalingFalse() {
     features.downScaling(null, "200", "100", true);
@@ -0,0 +1,130 @@
+package controller;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import model.ImageModelV4;
+import utils.HistogramEstimate;
+
+/**
+ * A mock implementation of the ImageModelV4 interface, extending the functionality of
+ * MockImageModelImplV3. This class is used primarily for testing the ImageModelV4 interface,
+ * allowing for method call logging and validation in tests.
+ */
+public class MockImageModelImplV4 extends MockImageModelImplV3 implements ImageModelV4 {
+
+  /**
+   * Constructor for MockImageModelImplV4. Initializes this mock model with a provided log list,
+   * passing it to the superclass to enable logging of method calls.
+   *
+   * @param log a List of Strings used to record the sequence of method calls and their details.
+   */
+  public MockImageModelImplV4(List<String> log) {
+    super(log);
+  }
+
+  @Override
+  public void applyCompress(int percentage, String imageName, String saveImage, int scale) {
+    log.add("applying Compression with percentage: " + percentage + " on imageName " + imageName
+        + " and saveImage " + saveImage + " at scale " + scale);
+  }
+
+  @Override
+  public void applyIntegerCompress(int percentage, String imageName, String saveImage,
+      int scale) {
+    log.add("applying integer Compression with percentage: " + percentage + " on imageName "
+        + imageName + " and saveImage " + saveImage + " at scale " + scale);
+  }
+
+  @Override
+  public void applyBlockCompress(int percentage, String imageName, String saveImage,
+      int blockSize, boolean globalThreshold) {
+    log.add("applying block Compression with percentage: " + percentage + " on imageName "
+        + imageName + " and saveImage " + saveImage + " with block size " + blockSize
+        + " and global threshold " + globalThreshold);
+  }
+
+  @Override
+  public int[][][] renderHistogram(String imageName) {
+    log.add("rendering Histogram of imageName " + imageName);
+    return new int[256][256][3];
+  }
+
+  @Override
+  public int[][] getHistogram(String imageName) {
+    log.add("fetching Histogram of imageName " + imageName);
+    return new int[3][256];
+  }
+
+  @Override
+  public HistogramEstimate estimateHistogram(String imageName, int sampleBudget) {
+    log.add("estimating Histogram of imageName " + imageName);
+    return new HistogramEstimate(new int[3][256], 0, 0);
+  }
+
+  @Override
+  public CompletableFuture<int[][]> computeHistogram(String imageName) {
+    log.add("computing Histogram of imageName " + imageName);
+    return CompletableFuture.completedFuture(new int[3][256]);
+  }
+
+  @Override
+  public int[][] getHistogram(String imageName, int x, int y, int width, int height) {
+    log.add("fetching Histogram of imageName " + imageName + " in region " + x + " " + y + " "
+        + width + " " + height);
+    return new int[3][256];
+  }
+
+  @Override
+  public void applyHistogram(String imageName, String saveImage, int x, int y, int width,
+      int height) {
+    log.add("applying Histogram on imageName " + imageName + " and saveImage " + saveImage
+        + " in region " + x + " " + y + " " + width + " " + height);
+  }
+
+  @Override
+  public void applyColorCorrection(String imageName, String saveImage, int x, int y, int width,
+      int height) {
+    log.add("applying Color Correction on imageName " + imageName + " and saveImage " + saveImage
+        + " in region " + x + " " + y + " " + width + " " + height);
+  }
+
+  @Override
+  public void setPyramidEnabled(boolean enabled) {
+    log.add("setting pyramid enabled " + enabled);
+  }
+
+  @Override
+  public void applyAreaDownScaling(String imageName, String saveImage, int height, int width) {
+    log.add("applying area downscaling on image: " + imageName + " with save image name: "
+        + saveImage + " with height: " + height + " with width: " + width);
+  }
+
+  @Override
+  public void applyPyramidDownScaling(String imageName, String saveImage, int height,
+      int width) {
+    log.add("applying pyramid downscaling on image: " + imageName + " with save image name: "
+        + saveImage + " with height: " + height + " with width: " + width);
+  }
+
+  @Override
+  public void applyResize(String imageName, String saveImage, int height, int width,
+      String filter) {
+    log.add("applying resize on image: " + imageName + " with save image name: " + saveImage
+        + " with height: " + height + " with width: " + width + " and filter: " + filter);
+  }
+
+  @Override
+  public int[][][] previewOperation(String operationName, String imageName, int[] params) {
+    log.add("previewing operation " + operationName + " on imageName " + imageName
+        + " with params " + Arrays.toString(params));
+    return new int[4][4][3];
+  }
+
+  @Override
+  public void applyMorphology(String operation, String maskImage, String saveImage,
+      int elementHeight, int elementWidth) {
+    log.add("applying " + operation + " on mask " + maskImage + " and saveImage " + saveImage
+        + " with element " + elementHeight + "x" + elementWidth);
+  }
+}
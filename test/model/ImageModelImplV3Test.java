@@ -1,6 +1,7 @@
 package model;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.awt.image.BufferedImage;
 import java.io.File;
@@ -265,6 +266,62 @@ public class ImageModelImplV3Test {
     }
   }
 
+  @Test
+  public void sparseMask() {
+    int height = this.initialRGB.length;
+    int width = this.initialRGB[0].length;
+    int[][][] sparseRGB = new int[height][width][3];
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        boolean black = (i >= 10 && i < 14 && j >= 20 && j < 30) || (i == 16 && j % 7 == 0)
+            || (i >= height - 3 && j < 5) || (i == 40 && j >= width - 2);
+        int value = black ? 0 : 255;
+        sparseRGB[i][j] = new int[]{value, value, value};
+      }
+    }
+    this.modelV3.loadImage("sparseImg", sparseRGB);
+    modelV3.applyBlur("initialImg", "blur");
+    modelV3.applySharpen("initialImg", "sharpen");
+    modelV3.applySepia("initialImg", "sepia");
+    for (String operation : new String[]{"blur", "sharpen", "sepia"}) {
+      modelV3.applyMasking(operation, "initialImg", "sparseImg", "masked");
+      int[][][] fullRGB = modelV3.saveImage(operation);
+      int[][][] finalRGB = modelV3.saveImage("masked");
+      for (int i = 0; i < height; i++) {
+        for (int j = 0; j < width; j++) {
+          int[] expected = sparseRGB[i][j][0] == 0 ? fullRGB[i][j] : this.initialRGB[i][j];
+          assertEquals(expected[0], finalRGB[i][j][0]);
+          assertEquals(expected[1], finalRGB[i][j][1]);
+          assertEquals(expected[2], finalRGB[i][j][2]);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void compiledMask() {
+    int height = this.maskRGB.length;
+    int width = this.maskRGB[0].length;
+    ImageData maskImage = new ImageData("maskImg", height, width, 3, this.maskRGB);
+    CompiledMask mask = maskImage.getCompiledMask();
+    assertTrue(mask == maskImage.getCompiledMask());
+    for (int i = 0; i < height; i++) {
+      int selected = 0;
+      for (int j = 0; j < width; j++) {
+        boolean black = this.maskRGB[i][j][0] == 0 && this.maskRGB[i][j][1] == 0
+            && this.maskRGB[i][j][2] == 0;
+        assertEquals(black, mask.contains(i, j));
+        selected += black ? 1 : 0;
+      }
+      int spanned = 0;
+      for (int span = mask.firstSpan(i); span < mask.firstSpan(i + 1); span++) {
+        spanned += mask.spanEnd(span) - mask.spanStart(span);
+      }
+      assertEquals(selected, spanned);
+      assertEquals(selected == 0, mask.isEmpty(i));
+    }
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void maskDimensionTest() throws IOException {
     BufferedImage newImg = ImageIO.read(new File("res/bird.png"));
@@ -0,0 +1,557 @@
+package model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+import utils.HistogramEstimate;
+
+/**
+ * A Junit Test class for ImageModelImplV4 class.
+ */
+public class ImageModelImplV4Test {
+
+  ImageModelV4 modelV4;
+  int[][][] initialRGB;
+
+  @Before
+  public void setUp() {
+    modelV4 = new ImageModelImplV4();
+    this.initialRGB = new int[6][6][3];
+    for (int i = 0; i < 6; i++) {
+      for (int j = 0; j < 6; j++) {
+        this.initialRGB[i][j][0] = 10 * i;
+        this.initialRGB[i][j][1] = 10 * j;
+        this.initialRGB[i][j][2] = 100;
+      }
+    }
+    this.modelV4.loadImage("initialImg", this.initialRGB);
+  }
+
+  @Test
+  public void compressScaleOneTest() {
+    modelV4.applyCompress(0, "initialImg", "scaled", 1);
+    assertArrayEquals(this.initialRGB, modelV4.saveImage("scaled"));
+  }
+
+  @Test
+  public void compressScaleTwoTest() {
+    modelV4.applyCompress(0, "initialImg", "scaled", 2);
+    int[][][] scaled = modelV4.saveImage("scaled");
+    assertEquals(3, scaled.length);
+    assertEquals(3, scaled[0].length);
+    for (int i = 0; i < 3; i++) {
+      for (int j = 0; j < 3; j++) {
+        assertEquals(20 * i + 5, scaled[i][j][0]);
+        assertEquals(20 * j + 5, scaled[i][j][1]);
+        assertEquals(100, scaled[i][j][2]);
+      }
+    }
+  }
+
+  @Test
+  public void compressScaleFourTest() {
+    modelV4.applyCompress(0, "initialImg", "scaled", 4);
+    int[][][] scaled = modelV4.saveImage("scaled");
+    assertEquals(2, scaled.length);
+    assertEquals(2, scaled[0].length);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void compressInvalidScaleTest() {
+    modelV4.applyCompress(0, "initialImg", "scaled", 3);
+  }
+
+  @Test
+  public void blockCompressZeroTest() {
+    modelV4.applyBlockCompress(0, "initialImg", "block", 8, false);
+    assertArrayEquals(this.initialRGB, modelV4.saveImage("block"));
+  }
+
+  @Test
+  public void blockCompressSingleBlockTest() {
+    modelV4.applyCompress(60, "initialImg", "whole");
+    modelV4.applyBlockCompress(60, "initialImg", "block", 8, false);
+    assertArrayEquals(modelV4.saveImage("whole"), modelV4.saveImage("block"));
+  }
+
+  @Test
+  public void blockCompressGlobalThresholdTest() {
+    modelV4.applyBlockCompress(100, "initialImg", "block", 8, true);
+    assertArrayEquals(new int[6][6][3], modelV4.saveImage("block"));
+  }
+
+  @Test
+  public void blockCompressGlobalKeepsLargestTest() {
+    int[][][] flat = new int[8][8][3];
+    for (int[][] row : flat) {
+      for (int[] pixel : row) {
+        pixel[0] = 200;
+        pixel[1] = 100;
+        pixel[2] = 50;
+      }
+    }
+    modelV4.loadImage("flat", flat);
+    modelV4.applyBlockCompress(99, "flat", "block", 8, true);
+    assertArrayEquals(flat, modelV4.saveImage("block"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void blockCompressInvalidSizeTest() {
+    modelV4.applyBlockCompress(50, "initialImg", "block", 12, false);
+  }
+
+  @Test
+  public void integerCompressLosslessTest() {
+    modelV4.applyIntegerCompress(0, "initialImg", "integer", 1);
+    assertArrayEquals(this.initialRGB, modelV4.saveImage("integer"));
+  }
+
+  @Test
+  public void integerCompressScaleTwoTest() {
+    modelV4.applyIntegerCompress(0, "initialImg", "integer", 2);
+    int[][][] scaled = modelV4.saveImage("integer");
+    assertEquals(3, scaled.length);
+    assertEquals(3, scaled[0].length);
+    for (int i = 0; i < 3; i++) {
+      for (int j = 0; j < 3; j++) {
+        assertEquals(20 * i + 5, scaled[i][j][0]);
+        assertEquals(20 * j + 5, scaled[i][j][1]);
+        assertEquals(100, scaled[i][j][2]);
+      }
+    }
+  }
+
+  @Test
+  public void integerCompressFullTest() {
+    modelV4.applyIntegerCompress(100, "initialImg", "integer", 1);
+    assertArrayEquals(new int[6][6][3], modelV4.saveImage("integer"));
+  }
+
+  @Test
+  public void renderHistogramTest() {
+    modelV4.applyHistogram("initialImg", "histogram");
+    assertArrayEquals(modelV4.saveImage("histogram"), modelV4.renderHistogram("initialImg"));
+  }
+
+  @Test
+  public void renderHistogramOverwrittenTest() {
+    int[][][] before = modelV4.renderHistogram("initialImg");
+    modelV4.loadImage("initialImg", new int[6][6][3]);
+    modelV4.applyHistogram("initialImg", "histogram");
+    int[][][] after = modelV4.renderHistogram("initialImg");
+    assertArrayEquals(modelV4.saveImage("histogram"), after);
+    assertFalse(Arrays.deepEquals(before, after));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void renderHistogramMissingTest() {
+    modelV4.renderHistogram("missing");
+  }
+
+  @Test
+  public void propagatedHistogramTest() {
+    modelV4.renderHistogram("initialImg");
+    modelV4.applyBrighten(30, "initialImg", "bright");
+    modelV4.applyLevelAdjustment("bright", "levels", 20, 100, 200);
+    modelV4.applyColorCorrection("levels", "corrected");
+    modelV4.applySplit("corrected", "red", "green", "blue");
+    for (String name : new String[]{"bright", "levels", "corrected", "red", "green", "blue"}) {
+      modelV4.loadImage("copy", modelV4.saveImage(name));
+      assertArrayEquals(modelV4.renderHistogram("copy"), modelV4.renderHistogram(name));
+    }
+  }
+
+  @Test
+  public void estimateHistogramTest() {
+    int[][][] large = new int[200][300][3];
+    for (int i = 0; i < 200; i++) {
+      for (int j = 0; j < 300; j++) {
+        large[i][j][0] = i;
+        large[i][j][1] = j % 256;
+        large[i][j][2] = 50;
+      }
+    }
+    modelV4.loadImage("large", large);
+    HistogramEstimate estimate = modelV4.estimateHistogram("large", 1000);
+    assertFalse(estimate.isExact());
+    assertTrue(estimate.getSamples() <= 1000);
+    int[][] exact = modelV4.getHistogram("large");
+    for (int k = 0; k < 3; k++) {
+      long estimatedCount = 0;
+      long exactCount = 0;
+      for (int v = 0; v < 256; v++) {
+        estimatedCount += estimate.getFrequencies()[k][v];
+        exactCount += exact[k][v];
+        assertTrue(Math.abs(estimatedCount - exactCount) <= estimate.getErrorBound() * 60000);
+      }
+      assertEquals(60000, estimatedCount);
+    }
+    assertEquals(60000, estimate.getFrequencies()[2][50]);
+  }
+
+  @Test
+  public void estimateHistogramCachedTest() throws Exception {
+    int[][] exact = modelV4.computeHistogram("initialImg").get();
+    HistogramEstimate estimate = modelV4.estimateHistogram("initialImg", 4);
+    assertTrue(estimate.isExact());
+    assertArrayEquals(exact, estimate.getFrequencies());
+    assertArrayEquals(exact, modelV4.getHistogram("initialImg"));
+  }
+
+  @Test
+  public void regionHistogramTest() {
+    int[][][] large = new int[150][200][3];
+    for (int i = 0; i < 150; i++) {
+      for (int j = 0; j < 200; j++) {
+        large[i][j][0] = (i * 7 + j) % 256;
+        large[i][j][1] = (i * j) % 256;
+        large[i][j][2] = j;
+      }
+    }
+    modelV4.loadImage("large", large);
+    int[][] regions = {{0, 0, 200, 150}, {0, 0, 64, 64}, {5, 3, 150, 140}, {70, 10, 100, 120},
+        {130, 66, 1, 1}, {17, 0, 183, 150}};
+    for (int[] region : regions) {
+      int[][] expected = new int[3][256];
+      for (int i = region[1]; i < region[1] + region[3]; i++) {
+        for (int j = region[0]; j < region[0] + region[2]; j++) {
+          for (int k = 0; k < 3; k++) {
+            expected[k][large[i][j][k]]++;
+          }
+        }
+      }
+      assertArrayEquals(expected,
+          modelV4.getHistogram("large", region[0], region[1], region[2], region[3]));
+    }
+  }
+
+  @Test
+  public void regionHistogramPlotTest() {
+    modelV4.applyHistogram("initialImg", "whole");
+    modelV4.applyHistogram("initialImg", "region", 0, 0, 6, 6);
+    assertArrayEquals(modelV4.saveImage("whole"), modelV4.saveImage("region"));
+    modelV4.applyHistogram("initialImg", "part", 2, 1, 3, 4);
+    assertEquals(256, modelV4.saveImage("part").length);
+  }
+
+  @Test
+  public void regionColorCorrectionTest() {
+    modelV4.applyColorCorrection("initialImg", "whole");
+    modelV4.applyColorCorrection("initialImg", "region", 0, 0, 6, 6);
+    assertArrayEquals(modelV4.saveImage("whole"), modelV4.saveImage("region"));
+    modelV4.applyColorCorrection("initialImg", "corner", 0, 0, 1, 1);
+    int[] corner = modelV4.saveImage("corner")[0][0];
+    assertEquals(corner[0], corner[1]);
+    assertEquals(corner[1], corner[2]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void regionHistogramOutsideTest() {
+    modelV4.getHistogram("initialImg", 3, 3, 4, 2);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void regionHistogramEmptyTest() {
+    modelV4.applyHistogram("initialImg", "region", 1, 1, 0, 2);
+  }
+
+  @Test
+  public void pyramidDownscaleSameSizeTest() {
+    modelV4.setPyramidEnabled(true);
+    modelV4.applyDownScaling("initialImg", "pyramid", 5, 4);
+    modelV4.setPyramidEnabled(false);
+    modelV4.applyDownScaling("initialImg", "direct", 5, 4);
+    assertArrayEquals(modelV4.saveImage("direct"), modelV4.saveImage("pyramid"));
+  }
+
+  @Test
+  public void pyramidDownscaleLevelTest() {
+    int[][][] large = new int[40][30][3];
+    for (int i = 0; i < 40; i++) {
+      for (int j = 0; j < 30; j++) {
+        large[i][j][0] = 4 * i;
+        large[i][j][1] = 6 * j;
+        large[i][j][2] = (i + j) % 2 == 0 ? 0 : 200;
+      }
+    }
+    modelV4.loadImage("large", large);
+    modelV4.setPyramidEnabled(true);
+    modelV4.applyDownScaling("large", "quarter", 10, 7);
+    int[][][] quarter = modelV4.saveImage("quarter");
+    assertEquals(10, quarter.length);
+    assertEquals(7, quarter[0].length);
+    assertArrayEquals(new int[]{6, 9, 100}, quarter[0][0]);
+    assertArrayEquals(new int[]{150, 9, 100}, quarter[9][0]);
+    modelV4.applyDownScaling("large", "same", 40, 30);
+    assertArrayEquals(large, modelV4.saveImage("same"));
+  }
+
+  @Test
+  public void pyramidDownscaleMatchesEnabledTest() {
+    modelV4.setPyramidEnabled(true);
+    modelV4.applyDownScaling("initialImg", "enabled", 2, 2);
+    modelV4.setPyramidEnabled(false);
+    modelV4.applyPyramidDownScaling("initialImg", "pyramid", 2, 2);
+    assertArrayEquals(modelV4.saveImage("enabled"), modelV4.saveImage("pyramid"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void pyramidDownscaleInvalidTest() {
+    modelV4.setPyramidEnabled(true);
+    modelV4.applyDownScaling("initialImg", "pyramid", 7, 4);
+  }
+
+  @Test
+  public void areaDownscaleBlockAverageTest() {
+    modelV4.applyAreaDownScaling("initialImg", "small", 2, 3);
+    int[][][] small = modelV4.saveImage("small");
+    assertEquals(2, small.length);
+    assertEquals(3, small[0].length);
+    assertArrayEquals(new int[]{10, 5, 100}, small[0][0]);
+    assertArrayEquals(new int[]{10, 45, 100}, small[0][2]);
+    assertArrayEquals(new int[]{40, 25, 100}, small[1][1]);
+  }
+
+  @Test
+  public void areaDownscaleFractionalTest() {
+    modelV4.applyAreaDownScaling("initialImg", "small", 4, 6);
+    int[][][] small = modelV4.saveImage("small");
+    // Output row 0 covers source row 0 and half of source row 1.
+    assertArrayEquals(new int[]{3, 0, 100}, small[0][0]);
+    // Output row 1 covers the other half of source row 1 and source row 2.
+    assertArrayEquals(new int[]{17, 50, 100}, small[1][5]);
+  }
+
+  @Test
+  public void areaDownscaleSameSizeTest() {
+    modelV4.applyAreaDownScaling("initialImg", "same", 6, 6);
+    assertArrayEquals(initialRGB, modelV4.saveImage("same"));
+  }
+
+  @Test
+  public void areaDownscaleAntiAliasTest() {
+    int[][][] stripes = new int[64][64][3];
+    for (int i = 0; i < 64; i++) {
+      for (int j = 0; j < 64; j++) {
+        int value = j % 2 == 0 ? 0 : 255;
+        stripes[i][j] = new int[]{value, value, value};
+      }
+    }
+    modelV4.loadImage("stripes", stripes);
+    modelV4.applyAreaDownScaling("stripes", "small", 4, 8);
+    for (int[][] row : modelV4.saveImage("small")) {
+      for (int[] pixel : row) {
+        assertArrayEquals(new int[]{128, 128, 128}, pixel);
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void areaDownscaleInvalidTest() {
+    modelV4.applyAreaDownScaling("initialImg", "small", 0, 3);
+  }
+
+  @Test
+  public void resizeSameSizeTest() {
+    modelV4.applyResize("initialImg", "bicubic", 6, 6, "bicubic");
+    modelV4.applyResize("initialImg", "lanczos", 6, 6, "lanczos");
+    assertArrayEquals(initialRGB, modelV4.saveImage("bicubic"));
+    assertArrayEquals(initialRGB, modelV4.saveImage("lanczos"));
+  }
+
+  @Test
+  public void resizeUpAndDownTest() {
+    modelV4.applyResize("initialImg", "large", 15, 9, "lanczos");
+    int[][][] large = modelV4.saveImage("large");
+    assertEquals(15, large.length);
+    assertEquals(9, large[0].length);
+    for (int[][] row : large) {
+      for (int[] pixel : row) {
+        assertEquals(100, pixel[2]);
+      }
+    }
+    assertTrue(large[0][0][0] <= large[14][0][0]);
+    assertTrue(large[0][0][1] <= large[0][8][1]);
+    modelV4.applyResize("large", "small", 3, 2, "bicubic");
+    assertEquals(3, modelV4.saveImage("small").length);
+    assertEquals(2, modelV4.saveImage("small")[0].length);
+  }
+
+  @Test
+  public void resizeAntiAliasTest() {
+    int[][][] stripes = new int[40][40][3];
+    for (int i = 0; i < 40; i++) {
+      for (int j = 0; j < 40; j++) {
+        int value = j % 2 == 0 ? 0 : 250;
+        stripes[i][j] = new int[]{value, value, value};
+      }
+    }
+    modelV4.loadImage("stripes", stripes);
+    modelV4.applyResize("stripes", "small", 10, 10, "lanczos");
+    int[][] row = modelV4.saveImage("small")[5];
+    for (int j = 2; j < 8; j++) {
+      assertTrue(Math.abs(row[j][0] - 125) <= 5);
+    }
+  }
+
+  @Test
+  public void resizeFilterBankCacheTest() {
+    assertTrue(FilterBank.forSizes("lanczos", 600, 80) == FilterBank.forSizes("lanczos", 600, 80));
+    FilterBank bank = FilterBank.forSizes("bicubic", 7, 20);
+    for (int i = 0; i < 20; i++) {
+      double total = 0;
+      for (int t = 0; t < bank.getTaps(); t++) {
+        total += bank.getWeights()[i * bank.getTaps() + t];
+      }
+      assertEquals(1, total, 1e-9);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void resizeInvalidFilterTest() {
+    modelV4.applyResize("initialImg", "small", 3, 3, "nearest");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void resizeInvalidSizeTest() {
+    modelV4.applyResize("initialImg", "small", 3, 0, "bicubic");
+  }
+
+  /**
+   * Erodes or dilates a selection by checking every window, for comparison. Dilation uses the
+   * reflected window.
+   */
+  private static boolean[][] naiveMorphology(boolean[][] selected, boolean dilate, int height,
+      int width) {
+    int rows = selected.length;
+    int columns = selected[0].length;
+    boolean[][] result = new boolean[rows][columns];
+    for (int i = 0; i < rows; i++) {
+      for (int j = 0; j < columns; j++) {
+        boolean any = false;
+        boolean all = true;
+        int top = dilate ? height / 2 : (height - 1) / 2;
+        int left = dilate ? width / 2 : (width - 1) / 2;
+        for (int y = i - top; y < i - top + height; y++) {
+          for (int x = j - left; x < j - left + width; x++) {
+            if (y >= 0 && y < rows && x >= 0 && x < columns) {
+              any |= selected[y][x];
+              all &= selected[y][x];
+            }
+          }
+        }
+        result[i][j] = dilate ? any : all;
+      }
+    }
+    return result;
+  }
+
+  @Test
+  public void morphologyMatchesNaiveTest() {
+    Random random = new Random(7);
+    boolean[][] selected = new boolean[23][31];
+    int[][][] mask = new int[23][31][3];
+    for (int i = 0; i < 23; i++) {
+      for (int j = 0; j < 31; j++) {
+        selected[i][j] = random.nextInt(4) != 0;
+        int value = selected[i][j] ? 0 : 255;
+        mask[i][j] = new int[]{value, value, value};
+      }
+    }
+    modelV4.loadImage("mask", mask);
+    int[][] elements = {{1, 1}, {3, 3}, {2, 5}, {4, 1}, {7, 9}, {30, 40}};
+    for (int[] element : elements) {
+      boolean[][] eroded = naiveMorphology(selected, false, element[0], element[1]);
+      boolean[][] dilated = naiveMorphology(selected, true, element[0], element[1]);
+      boolean[][][] expected = {eroded, dilated,
+          naiveMorphology(eroded, true, element[0], element[1]),
+          naiveMorphology(dilated, false, element[0], element[1])};
+      String[] operations = {"erode", "dilate", "open", "close"};
+      for (int k = 0; k < 4; k++) {
+        modelV4.applyMorphology(operations[k], "mask", "result", element[0], element[1]);
+        int[][][] result = modelV4.saveImage("result");
+        for (int i = 0; i < 23; i++) {
+          for (int j = 0; j < 31; j++) {
+            int value = expected[k][i][j] ? 0 : 255;
+            assertArrayEquals(new int[]{value, value, value}, result[i][j]);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void morphologyOpenRemovesSpecksTest() {
+    int[][][] mask = new int[10][10][3];
+    for (int i = 0; i < 10; i++) {
+      for (int j = 0; j < 10; j++) {
+        boolean black = (i >= 2 && i < 8 && j >= 2 && j < 8) || (i == 0 && j == 9);
+        int value = black ? 0 : 255;
+        mask[i][j] = new int[]{value, value, value};
+      }
+    }
+    modelV4.loadImage("mask", mask);
+    modelV4.applyMorphology("open", "mask", "opened", 3, 3);
+    int[][][] opened = modelV4.saveImage("opened");
+    assertArrayEquals(new int[]{255, 255, 255}, opened[0][9]);
+    assertArrayEquals(new int[]{0, 0, 0}, opened[2][2]);
+    assertArrayEquals(new int[]{0, 0, 0}, opened[7][7]);
+  }
+
+  @Test
+  public void morphologyEvenElementOrderingTest() {
+    Random random = new Random(11);
+    int[][][] mask = new int[19][27][3];
+    for (int i = 0; i < 19; i++) {
+      for (int j = 0; j < 27; j++) {
+        int value = random.nextInt(3) != 0 ? 0 : 255;
+        mask[i][j] = new int[]{value, value, value};
+      }
+    }
+    mask[5][3] = new int[]{0, 0, 0};
+    modelV4.loadImage("mask", mask);
+    int[][] elements = {{2, 2}, {1, 2}, {4, 2}, {2, 6}, {4, 4}};
+    for (int[] element : elements) {
+      modelV4.applyMorphology("open", "mask", "opened", element[0], element[1]);
+      modelV4.applyMorphology("close", "mask", "closed", element[0], element[1]);
+      int[][][] opened = modelV4.saveImage("opened");
+      int[][][] closed = modelV4.saveImage("closed");
+      for (int i = 0; i < 19; i++) {
+        for (int j = 0; j < 27; j++) {
+          boolean selected = mask[i][j][0] == 0;
+          assertTrue(selected || opened[i][j][0] == 255);
+          assertTrue(!selected || closed[i][j][0] == 0);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void morphologyEvenOpenKeepsRunTest() {
+    int[][][] mask = new int[1][7][3];
+    boolean[] selected = {false, false, true, true, true, false, false};
+    for (int j = 0; j < 7; j++) {
+      int value = selected[j] ? 0 : 255;
+      mask[0][j] = new int[]{value, value, value};
+    }
+    modelV4.loadImage("mask", mask);
+    modelV4.applyMorphology("open", "mask", "opened", 1, 2);
+    assertArrayEquals(mask, modelV4.saveImage("opened"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void morphologyInvalidOperationTest() {
+    modelV4.applyMorphology("thin", "initialImg", "result", 3, 3);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void morphologyInvalidElementTest() {
+    modelV4.applyMorphology("erode", "initialImg", "result", 0, 3);
+  }
+}